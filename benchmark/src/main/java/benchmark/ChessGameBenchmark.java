@@ -0,0 +1,94 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import serialization.Serializer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation, check detection, copying and serialization of the shared chess
+ * engine. Each benchmark covers every piece of the team to move where that applies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessGameBenchmark {
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private ChessGame game;
+    private ChessBoard board;
+    private final List<ChessPosition> pieces = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        this.game = Positions.load(this.position);
+        this.board = this.game.getBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = ChessPosition.of(row, col);
+                ChessPiece piece = this.board.getPiece(position);
+                if (piece != null && piece.getTeamColor() == this.game.getTeamTurn()) {
+                    this.pieces.add(position);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void pieceMoves(Blackhole blackhole) {
+        for (ChessPosition position : this.pieces) {
+            blackhole.consume(this.board.getPiece(position).pieceMoves(this.board, position));
+        }
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (ChessPosition position : this.pieces) {
+            blackhole.consume(this.game.validMoves(position));
+        }
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return this.game.isInCheck(this.game.getTeamTurn());
+    }
+
+    // Works on a fresh copy so the game's status cache starts cold every time
+    @Benchmark
+    public boolean isInCheckmate() {
+        return this.game.copy().isInCheckmate(this.game.getTeamTurn());
+    }
+
+    @Benchmark
+    public ChessGame.GameStatus gameStatus() {
+        return this.game.copy().getGameStatus();
+    }
+
+    @Benchmark
+    public Collection<ChessMove> allValidMoves() {
+        return this.game.copy().validMoves();
+    }
+
+    @Benchmark
+    public ChessBoard boardCopy() {
+        return this.board.copy();
+    }
+
+    @Benchmark
+    public ChessGame gsonRoundTrip() {
+        return Serializer.GSON.fromJson(Serializer.GSON.toJson(this.game), ChessGame.class);
+    }
+}
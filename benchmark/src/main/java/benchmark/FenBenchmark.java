@@ -0,0 +1,59 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import org.openjdk.jmh.annotations.*;
+import serialization.Serializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of loading and saving positions as FEN, with the Gson form of the same
+ * game for comparison
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FenBenchmark {
+    @Param({"opening", "middlegame", "endgame"})
+    public String position;
+
+    private String fen;
+    private ChessGame game;
+    private String json;
+
+    @Setup
+    public void setup() {
+        this.fen = Positions.fen(this.position);
+        this.game = ChessGame.fromFen(this.fen);
+        this.json = Serializer.GSON.toJson(this.game);
+    }
+
+    @Benchmark
+    public ChessGame parseGame() {
+        return ChessGame.fromFen(this.fen);
+    }
+
+    @Benchmark
+    public ChessBoard parseBoard() {
+        return ChessBoard.fromFen(this.fen);
+    }
+
+    @Benchmark
+    public String formatGame() {
+        return this.game.toFen();
+    }
+
+    @Benchmark
+    public ChessGame gsonParse() {
+        return Serializer.GSON.fromJson(this.json, ChessGame.class);
+    }
+
+    @Benchmark
+    public String gsonFormat() {
+        return Serializer.GSON.toJson(this.game);
+    }
+}
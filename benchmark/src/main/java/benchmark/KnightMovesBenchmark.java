@@ -0,0 +1,77 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Knight move generation on a board full of knights near the edges, comparing the
+ * precomputed target tables against the old approach of constructing every target
+ * square and catching the exception ChessPosition throws for off-board ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KnightMovesBenchmark {
+    private static final int[][] KNIGHT_DIFFS = {{1, 2}, {2, 1}, {-1, 2}, {-2, 1}, {1, -2}, {2, -1}, {-1, -2}, {-2, -1}};
+
+    private ChessBoard board;
+    private final List<ChessPosition> knights = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        this.board = Positions.load("knights").getBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = ChessPosition.of(row, col);
+                ChessPiece piece = this.board.getPiece(position);
+                if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KNIGHT) {
+                    this.knights.add(position);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void tables(Blackhole blackhole) {
+        for (ChessPosition position : this.knights) {
+            blackhole.consume(this.board.getPiece(position).pieceMoves(this.board, position));
+        }
+    }
+
+    @Benchmark
+    public void exceptions(Blackhole blackhole) {
+        for (ChessPosition position : this.knights) {
+            blackhole.consume(exceptionKnightMoves(this.board, position));
+        }
+    }
+
+    // The generator the tables replaced, kept here only as the baseline
+    private static Collection<ChessMove> exceptionKnightMoves(ChessBoard board, ChessPosition myPosition) {
+        ArrayList<ChessMove> moves = new ArrayList<>();
+        ChessGame.TeamColor color = board.getPiece(myPosition).getTeamColor();
+        for (int[] diff : KNIGHT_DIFFS) {
+            try {
+                ChessPosition newPosition = new ChessPosition(myPosition.getRow() + diff[0], myPosition.getColumn() + diff[1]);
+                ChessPiece other = board.getPiece(newPosition);
+                if (other != null && other.getTeamColor() == color) {
+                    continue;
+                }
+                moves.add(new ChessMove(myPosition, newPosition, null));
+            } catch (RuntimeException e) {}
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,29 @@
+package benchmark;
+
+import chess.ChessGame;
+
+import java.util.Map;
+
+/**
+ * Representative positions for the benchmarks, as FEN records
+ */
+public class Positions {
+    private static final Map<String, String> FENS = Map.of(
+            "opening", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "middlegame", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "knights", "n3k2n/2N5/5n2/N2n3N/4N3/1n4N1/8/N3K2n w - - 0 1"
+    );
+
+    public static String fen(String name) {
+        String fen = FENS.get(name);
+        if (fen == null) {
+            throw new IllegalArgumentException("Unknown position: " + name);
+        }
+        return fen;
+    }
+
+    public static ChessGame load(String name) {
+        return ChessGame.fromFen(fen(name));
+    }
+}
@@ -7,6 +7,7 @@ import client.websocket.NotificationHandler;
 import client.websocket.WebsocketFacade;
 import exception.ResponseException;
 import model.GameData;
+import model.GameSummary;
 import server.ServerFacade;
 import record.*;
 import ui.ChessGame;
@@ -22,7 +23,10 @@ public class ChessClient {
     private final String serverUrl;
     private final NotificationHandler notificationHandler;
     private WebsocketFacade websocketFacade;
-    private final HashMap<Integer, Integer> gameIDs = new HashMap<>();
+    // The games listed so far by their number in the listing
+    private final HashMap<Integer, GameSummary> listed = new HashMap<>();
+    private Integer nextPage = null;
+    private static final String LOADING = "The game is still loading.";
 
     public ChessClient(String serverUrl, NotificationHandler notificationHandler) {
         this.server = new ServerFacade(serverUrl);
@@ -46,7 +50,7 @@ public class ChessClient {
                 return switch (cmd) {
                     case "logout" -> this.logout();
                     case "create" -> this.createGame(params);
-                    case "list" -> this.listGames();
+                    case "list" -> this.listGames(params);
                     case "join" -> this.joinGame(params);
                     case "observe" -> this.spectate(params);
                     case "quit" -> "quit";
@@ -119,6 +123,9 @@ public class ChessClient {
     }
 
     public String legalMoves(String s) {
+        if (this.gameData.game() == null) {
+            return LOADING;
+        }
         ChessPosition position;
         try {
             position = ChessPosition.fromString(s);
@@ -151,6 +158,9 @@ public class ChessClient {
     }
 
     public String redraw() {
+        if (this.gameData.game() == null) {
+            return LOADING;
+        }
         // Observing will be white
         return ChessGame.getBoardDisplay(gameData.game().getBoard(), !this.username.equals(gameData.blackUsername()), null, null);
     }
@@ -195,24 +205,7 @@ public class ChessClient {
             return this.help();
         }
 
-        int gameID;
-        try {
-            gameID = this.gameIDs.get(Integer.parseInt(params[0]));
-        } catch (Throwable e) {
-            throw new ResponseException(400, "Invalid Game ID");
-        }
-
-        ListGamesResponse gameList = this.server.listGames(this.authToken);
-        GameData joinedGame = null;
-        for (GameData gameData : gameList.games()) {
-            if (gameData.gameID() == gameID) {
-                joinedGame = gameData;
-                break;
-            }
-        }
-        if (joinedGame == null) {
-            throw new ResponseException(400, "Invalid Game ID");
-        }
+        GameSummary joinedGame = this.listedGame(params[0]);
         String teamColor;
         if (params.length == 2) {
             teamColor = params[1];
@@ -233,16 +226,11 @@ public class ChessClient {
         JoinGameRequest req = new JoinGameRequest(teamColor, joinedGame.gameID());
         this.server.joinGame(req, this.authToken);
 
-        gameList = this.server.listGames(this.authToken);
-        for (GameData gameData : gameList.games()) {
-            if (gameData.gameID() == gameID) {
-                this.gameData = gameData;
-                break;
-            }
-        }
-        if (this.gameData == null) {
-            throw new ResponseException(500, "Unknown error");
-        }
+        // The join succeeded, so the seat is ours without listing the games again
+        GameData joined = loading(joinedGame);
+        this.gameData = teamColor.equals("WHITE")
+                ? new GameData(joined.gameID(), this.username, joined.blackUsername(), joined.gameName(), null)
+                : new GameData(joined.gameID(), joined.whiteUsername(), this.username, joined.gameName(), null);
 
         this.websocketFacade = new WebsocketFacade(this.serverUrl, this.notificationHandler);
         this.websocketFacade.joinGame(this.authToken, this.gameData.gameID());
@@ -255,23 +243,7 @@ public class ChessClient {
             return this.help();
         }
 
-        int gameID;
-        try {
-            gameID = this.gameIDs.get(Integer.parseInt(params[0]));
-        } catch (Throwable e) {
-            throw new ResponseException(400, "Invalid Game ID");
-        }
-
-        ListGamesResponse gameList = this.server.listGames(this.authToken);
-        for (GameData gameData : gameList.games()) {
-            if (gameData.gameID() == gameID) {
-                this.gameData = gameData;
-                break;
-            }
-        }
-        if (this.gameData == null) {
-            throw new ResponseException(400, "Invalid Game ID");
-        }
+        this.gameData = loading(this.listedGame(params[0]));
         this.observing = true;
 
         this.websocketFacade = new WebsocketFacade(this.serverUrl, this.notificationHandler);
@@ -280,22 +252,56 @@ public class ChessClient {
         return "";
     }
 
-    public String listGames() throws ResponseException {
-        ListGamesResponse result = this.server.listGames(this.authToken);
+    // The listing has no boards, the game itself arrives over the websocket once connected
+    private static GameData loading(GameSummary summary) {
+        return new GameData(summary.gameID(), summary.whiteUsername(), summary.blackUsername(), summary.gameName(), null);
+    }
+
+    private GameSummary listedGame(String number) throws ResponseException {
+        GameSummary summary;
+        try {
+            summary = this.listed.get(Integer.parseInt(number));
+        } catch (NumberFormatException e) {
+            summary = null;
+        }
+        if (summary == null) {
+            throw new ResponseException(400, "Invalid Game ID");
+        }
+        return summary;
+    }
+
+    // `list` starts over from the first page, `list more` carries on where the last one stopped
+    public String listGames(String... params) throws ResponseException {
+        boolean more = params.length == 1 && params[0].equals("more");
+        if (params.length > 1 || (params.length == 1 && !more)) {
+            return this.help();
+        }
+        if (more && this.nextPage == null) {
+            return "No more games.";
+        }
+        if (!more) {
+            this.listed.clear();
+        }
+        ListGameSummariesResponse result = this.server.listGameSummaries(this.authToken, GameFilter.ALL,
+                more ? this.nextPage : null);
+        this.nextPage = result.next();
         StringBuilder gameList = new StringBuilder();
 
-        int i = 1;
-        for (GameData gameData : result.games()) {
-            String whiteUsername = Objects.requireNonNullElse(gameData.whiteUsername(), "-");
-            String blackUsername = Objects.requireNonNullElse(gameData.blackUsername(), "-");
-            gameList.append("[").append(i).append("] Game \"").append(gameData.gameName());
+        int i = this.listed.size() + 1;
+        for (GameSummary summary : result.games()) {
+            String whiteUsername = Objects.requireNonNullElse(summary.whiteUsername(), "-");
+            String blackUsername = Objects.requireNonNullElse(summary.blackUsername(), "-");
+            gameList.append("[").append(i).append("] Game \"").append(summary.gameName());
             gameList.append("\" White: ").append(whiteUsername).append(" Black: ").append(blackUsername).append("\n");
-            this.gameIDs.put(i, gameData.gameID());
+            this.listed.put(i, summary);
             i++;
         }
         if (gameList.isEmpty()) {
             return "No games. Use `create` to create one.";
         }
+        if (this.nextPage != null) {
+            gameList.append("Use `list more` to see more games.\n");
+        }
         return gameList.toString();
     }
 
@@ -310,7 +316,7 @@ public class ChessClient {
         } else if (this.gameData == null) {
             return """
                     - create <name>
-                    - list
+                    - list [more]
                     - join <id> <white|black>
                     - observe <id>
                     - logout
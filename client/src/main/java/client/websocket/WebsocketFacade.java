@@ -1,12 +1,12 @@
 package client.websocket;
 
 import chess.ChessMove;
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 import exception.ResponseException;
 import model.AuthData;
+import serialization.Serializer;
 import websocket.commands.UserGameCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.messages.Notification;
@@ -38,22 +38,20 @@ public class WebsocketFacade extends Endpoint {
             this.session.addMessageHandler(new MessageHandler.Whole<String>() {
                 @Override
                 public void onMessage(String message) {
-                    Gson gson = new Gson();
-
                     JsonObject json = JsonParser.parseString(message).getAsJsonObject();
                     String type = json.get("serverMessageType").getAsString();
 
                     switch (type) {
                         case "NOTIFICATION" -> {
-                            Notification deserialized = gson.fromJson(json, Notification.class);
+                            Notification deserialized = Serializer.GSON.fromJson(json, Notification.class);
                             notificationHandler.notify(deserialized);
                         }
                         case "ERROR" -> {
-                            Error deserialized = gson.fromJson(json, Error.class);
+                            Error deserialized = Serializer.GSON.fromJson(json, Error.class);
                             notificationHandler.notify(deserialized);
                         }
                         case "LOAD_GAME" -> {
-                            LoadGame deserialized = gson.fromJson(json, LoadGame.class);
+                            LoadGame deserialized = Serializer.GSON.fromJson(json, LoadGame.class);
                             notificationHandler.notify(deserialized);
                         }
                         default -> throw new RuntimeException();
@@ -72,7 +70,7 @@ public class WebsocketFacade extends Endpoint {
     public void joinGame(String authToken, int gameID) throws ResponseException {
         try {
             UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            this.session.getBasicRemote().sendText(Serializer.GSON.toJson(command));
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
         }
@@ -81,7 +79,7 @@ public class WebsocketFacade extends Endpoint {
     public void leaveGame(String authToken, int gameID) throws ResponseException {
         try {
             UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.LEAVE, authToken, gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            this.session.getBasicRemote().sendText(Serializer.GSON.toJson(command));
             this.session.close();
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
@@ -91,7 +89,7 @@ public class WebsocketFacade extends Endpoint {
     public void resign(String authToken, int gameID) throws ResponseException {
         try {
             UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.RESIGN, authToken, gameID);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            this.session.getBasicRemote().sendText(Serializer.GSON.toJson(command));
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
         }
@@ -100,7 +98,7 @@ public class WebsocketFacade extends Endpoint {
     public void makeMove(String authToken, int gameID, ChessMove move) throws ResponseException {
         try {
             MakeMoveCommand command = new MakeMoveCommand(authToken, gameID, move);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            this.session.getBasicRemote().sendText(Serializer.GSON.toJson(command));
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
         }
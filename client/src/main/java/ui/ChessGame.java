@@ -56,7 +56,7 @@ public class ChessGame {
                 display.append(bgColor);
 
                 // piece
-                ChessPosition position = new ChessPosition(row, col);
+                ChessPosition position = ChessPosition.of(row, col);
                 ChessPiece piece = board.getPiece(position);
                 if (piece != null) {
                     if (piece.getTeamColor() == TeamColor.WHITE) {
@@ -4,5 +4,7 @@ public class Main {
     public static void main(String[] args) {
         Server server = new Server();
         server.run(8080);
+        // Save games still waiting to be written when the process is stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
     }
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package dataaccess;
+
+import exception.ResponseException;
+import model.AuthData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers auth lookups in front of another AuthAccess. Valid tokens are kept for the
+ * TTL, unknown ones for the (shorter) negative TTL so repeated bad tokens don't reach
+ * the database either. Deleting a token here drops it from the cache straight away.
+ * Tokens deleted behind this cache's back, e.g. by another server, stay valid for
+ * at most the TTL.
+ */
+public class AuthAccessCached implements AuthAccess {
+    /**
+     * A snapshot of the cache's counters.
+     */
+    public record Stats(int size, long hits, long misses, long negativeHits) {
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    // A null auth means the token is known not to exist
+    private record Entry(AuthData auth, long expires) {}
+
+    private final AuthAccess delegate;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final int maxSize;
+
+    private final LinkedHashMap<String, Entry> entries;
+    // Bumped on every invalidation so a lookup that raced one doesn't cache what it read
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long negativeHits;
+
+    /**
+     * @param ttlMillis         how long a valid token is trusted without asking the delegate
+     * @param negativeTtlMillis how long an unknown token is remembered as unknown
+     * @param maxSize           how many tokens to remember, least recently used go first
+     */
+    public AuthAccessCached(AuthAccess delegate, long ttlMillis, long negativeTtlMillis, int maxSize) {
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > AuthAccessCached.this.maxSize;
+            }
+        };
+    }
+
+    public AuthData create(AuthData data) throws ResponseException {
+        AuthData created = delegate.create(data);
+        synchronized (this) {
+            generation++;
+            entries.put(created.authToken(), new Entry(created, System.nanoTime() + ttlNanos));
+        }
+        return created;
+    }
+
+    public AuthData get(String authToken) throws ResponseException {
+        if (authToken == null) {
+            return delegate.get(null);
+        }
+        long seen;
+        synchronized (this) {
+            Entry entry = entries.get(authToken);
+            if (entry != null && System.nanoTime() - entry.expires() < 0) {
+                hits++;
+                if (entry.auth() == null) {
+                    negativeHits++;
+                    throw ResponseException.unauthorized();
+                }
+                return entry.auth();
+            }
+            misses++;
+            seen = generation;
+        }
+
+        AuthData auth;
+        try {
+            auth = delegate.get(authToken);
+        } catch (ResponseException e) {
+            if (e.statusCode() == 401) {
+                remember(authToken, null, seen, negativeTtlNanos);
+            }
+            throw e;
+        }
+        remember(authToken, auth, seen, ttlNanos);
+        return auth;
+    }
+
+    public void delete(String authToken) throws ResponseException {
+        invalidate(authToken);
+        try {
+            delegate.delete(authToken);
+        } finally {
+            invalidate(authToken);
+        }
+    }
+
+    public void deleteAll() throws ResponseException {
+        try {
+            delegate.deleteAll();
+        } finally {
+            synchronized (this) {
+                generation++;
+                entries.clear();
+            }
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(entries.size(), hits, misses, negativeHits);
+    }
+
+    private synchronized void remember(String authToken, AuthData auth, long seen, long ttl) {
+        if (generation == seen) {
+            entries.put(authToken, new Entry(auth, System.nanoTime() + ttl));
+        }
+    }
+
+    private synchronized void invalidate(String authToken) {
+        generation++;
+        entries.remove(authToken);
+    }
+}
@@ -0,0 +1,322 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of database connections. Closing a connection handed out by
+ * {@link #getConnection()} returns it to the pool instead of closing the socket, so
+ * callers keep using try-with-resources exactly like they would with DriverManager.
+ * <p>
+ * Idle connections are reused most recently used first. Ones that have sat idle longer
+ * than the idle timeout are closed, and ones idle longer than the validation interval
+ * are checked with {@link Connection#isValid(int)} before being handed out again.
+ * <p>
+ * Each pooled connection keeps a {@link StatementCache}, so calling
+ * {@link Connection#prepareStatement(String)} with SQL it has already prepared reuses
+ * the open statement instead of preparing it again.
+ */
+public class ConnectionPool {
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * A snapshot of the pool's counters, wait times are in nanoseconds.
+     */
+    public record Stats(int open, int idle, long borrows, long created, long evicted, long timeouts,
+                        long totalWaitNanos, long maxWaitNanos, long statementHits, long statementMisses) {
+        public long averageWaitNanos() {
+            return borrows == 0 ? 0 : totalWaitNanos / borrows;
+        }
+
+        /**
+         * @return the fraction of prepared statements served from a connection's cache
+         */
+        public double statementHitRate() {
+            long prepares = statementHits + statementMisses;
+            return prepares == 0 ? 0 : (double) statementHits / prepares;
+        }
+    }
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final long timeoutNanos;
+    private final long idleTimeoutNanos;
+    private final long validationIntervalNanos;
+    private final int statementCacheSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    // Most recently returned first
+    private final ArrayDeque<Idle> idle = new ArrayDeque<>();
+    private int open;
+
+    private long borrows;
+    private long created;
+    private long evicted;
+    private long timeouts;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    // Counted by whichever thread holds the connection, outside the lock
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+
+    private record Pooled(Connection connection, StatementCache statements) {}
+
+    private record Idle(Pooled pooled, long since) {}
+
+    /**
+     * @param maxSize            the most connections open at once
+     * @param timeoutMillis      how long a caller waits for a connection before giving up
+     * @param idleTimeoutMillis  how long a connection may sit unused before it's closed
+     * @param validationMillis   how long a connection may sit unused before it's checked
+     * @param statementCacheSize how many prepared statements each connection keeps open, 0 for none
+     */
+    ConnectionPool(ConnectionFactory factory, int maxSize, long timeoutMillis, long idleTimeoutMillis,
+                   long validationMillis, int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.validationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(validationMillis);
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Borrows a connection, opening a new one if none are idle and the pool isn't full,
+     * otherwise waiting for one to be returned.
+     *
+     * @throws SQLException if no connection frees up within the timeout or one can't be opened
+     */
+    Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        while (true) {
+            Idle reused = null;
+            List<Connection> expired = new ArrayList<>(0);
+            lock.lock();
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    evictExpired(now, expired);
+                    reused = idle.pollFirst();
+                    if (reused != null) {
+                        break;
+                    }
+                    if (open < maxSize) {
+                        open++;
+                        created++;
+                        break;
+                    }
+                    long remaining = timeoutNanos - (now - start);
+                    if (remaining <= 0) {
+                        timeouts++;
+                        throw new SQLException("Timed out waiting for a database connection");
+                    }
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted waiting for a database connection", e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+                closeQuietly(expired);
+            }
+
+            Pooled pooled;
+            if (reused == null) {
+                try {
+                    Connection connection = factory.create();
+                    pooled = new Pooled(connection,
+                            new StatementCache(connection, statementCacheSize, statementHits, statementMisses));
+                } catch (SQLException | RuntimeException e) {
+                    discard(null);
+                    throw e;
+                }
+            } else {
+                pooled = reused.pooled();
+                if (System.nanoTime() - reused.since() > validationIntervalNanos && !isValid(pooled.connection())) {
+                    discard(pooled.connection());
+                    continue;
+                }
+            }
+            recordBorrow(System.nanoTime() - start);
+            return lease(pooled);
+        }
+    }
+
+    Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(open, idle.size(), borrows, created, evicted, timeouts, totalWaitNanos, maxWaitNanos,
+                    statementHits.sum(), statementMisses.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordBorrow(long waitNanos) {
+        lock.lock();
+        try {
+            borrows++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The oldest idle connections sit at the back of the deque
+    private void evictExpired(long now, List<Connection> expired) {
+        Iterator<Idle> oldest = idle.descendingIterator();
+        while (oldest.hasNext()) {
+            Idle entry = oldest.next();
+            if (now - entry.since() <= idleTimeoutNanos) {
+                return;
+            }
+            oldest.remove();
+            open--;
+            evicted++;
+            expired.add(entry.pooled().connection());
+        }
+    }
+
+    private void release(Pooled pooled) {
+        Connection connection = pooled.connection();
+        try {
+            pooled.statements().release();
+            if (connection.isClosed()) {
+                discard(null);
+                return;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(connection);
+            return;
+        }
+        lock.lock();
+        try {
+            idle.addFirst(new Idle(pooled, System.nanoTime()));
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Gives up a slot in the pool, closing the connection if there is one
+    private void discard(Connection connection) {
+        lock.lock();
+        try {
+            open--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (connection != null) {
+            closeQuietly(List.of(connection));
+        }
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(List<Connection> connections) {
+        for (Connection connection : connections) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // It's being thrown away either way
+            }
+        }
+    }
+
+    private Connection lease(Pooled pooled) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Lease(pooled));
+    }
+
+    /**
+     * Hands calls through to the pooled connection until it's closed, then returns it to
+     * the pool. A new lease is made for every borrow so a stale reference can't reach a
+     * connection someone else has since borrowed.
+     */
+    private class Lease implements InvocationHandler {
+        private Pooled pooled;
+
+        Lease(Pooled pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (pooled != null) {
+                        Pooled returned = pooled;
+                        pooled = null;
+                        release(returned);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return pooled == null || pooled.connection().isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled " + (pooled == null ? "(closed)" : pooled.connection());
+                }
+            }
+            if (pooled == null) {
+                throw new SQLException("Connection is closed");
+            }
+            if (method.getName().equals("prepareStatement") && args.length == 1) {
+                return pooled.statements().prepare((String) args[0], (Connection) proxy);
+            }
+            Object result;
+            try {
+                result = method.invoke(pooled.connection(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            // Statements from the other overloads mustn't hand out the pooled connection either
+            if (result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return StatementCache.owned(statement, method.getReturnType().asSubclass(Statement.class), (Connection) proxy);
+            }
+            return result;
+        }
+    }
+}
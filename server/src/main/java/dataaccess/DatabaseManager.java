@@ -10,9 +10,15 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final ConnectionPool POOL;
 
     /*
-     * Load the database information for the db.properties file.
+     * Load the database information for the db.properties file. The pool settings are
+     * optional: db.pool.size (connections, default 10), db.pool.timeout (ms to wait for a
+     * connection, default 5000), db.pool.idleTimeout (ms before an unused connection is
+     * closed, default 600000), db.pool.validationInterval (ms unused before a connection
+     * is checked on borrow, default 30000) and db.pool.statementCacheSize (prepared
+     * statements kept open per connection, default 64).
      */
     static {
         try {
@@ -28,7 +34,15 @@ public class DatabaseManager {
 
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
-                CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+                // Prepare statements on the server so cached ones skip parsing when reused
+                CONNECTION_URL = String.format("jdbc:mysql://%s:%d?useServerPrepStmts=true", host, port);
+
+                POOL = new ConnectionPool(DatabaseManager::openConnection,
+                        Integer.parseInt(props.getProperty("db.pool.size", "10")),
+                        Long.parseLong(props.getProperty("db.pool.timeout", "5000")),
+                        Long.parseLong(props.getProperty("db.pool.idleTimeout", "600000")),
+                        Long.parseLong(props.getProperty("db.pool.validationInterval", "30000")),
+                        Integer.parseInt(props.getProperty("db.pool.statementCacheSize", "64")));
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
@@ -53,8 +67,21 @@ public class DatabaseManager {
               `whiteUsername` varchar(256),
               `blackUsername` varchar(256),
               `gameName` varchar(256) NOT NULL,
-              `game` TEXT NOT NULL,
-              PRIMARY KEY (`id`)
+              `game` BLOB NOT NULL,
+              `snapshotPly` int NOT NULL DEFAULT 0,
+              `status` varchar(16) NOT NULL DEFAULT 'IN_PROGRESS',
+              PRIMARY KEY (`id`),
+              INDEX `game_status` (`status`, `id`),
+              INDEX `game_white` (`whiteUsername`, `id`),
+              INDEX `game_black` (`blackUsername`, `id`)
+            )
+            """,
+            """
+            CREATE TABLE IF NOT EXISTS game_move (
+              `gameID` int NOT NULL,
+              `ply` int NOT NULL,
+              `move` varchar(5) NOT NULL,
+              PRIMARY KEY (`gameID`, `ply`)
             )
             """,
             """
@@ -79,6 +106,17 @@ public class DatabaseManager {
                         preparedStatement.executeUpdate();
                     }
                 }
+                migrateGameColumn(conn);
+                // Games used to be rewritten whole on every move and listed with their boards.
+                // Old rows have no logged moves, so a snapshot ply of 0 is safe for them.
+                addColumnIfMissing(conn, "game", "snapshotPly", "int NOT NULL DEFAULT 0");
+                if (addColumnIfMissing(conn, "game", "status", "varchar(16) NOT NULL DEFAULT 'IN_PROGRESS'")) {
+                    GameAccessDB.fillStatuses(conn);
+                }
+                // Filtered listings page through these in id order
+                addIndexIfMissing(conn, "game", "game_status", "`status`, `id`");
+                addIndexIfMissing(conn, "game", "game_white", "`whiteUsername`, `id`");
+                addIndexIfMissing(conn, "game", "game_black", "`blackUsername`, `id`");
             }
         } catch (SQLException e) {
             throw new ResponseException(500, e.getMessage());
@@ -87,24 +125,98 @@ public class DatabaseManager {
 
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Games used to be stored as JSON text, switch the column over to binary in place.
+     * The old rows keep their bytes and are still read as JSON.
+     */
+    private static void migrateGameColumn(Connection conn) throws SQLException {
+        String query = "SELECT DATA_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA=? AND TABLE_NAME='game' AND COLUMN_NAME='game'";
+        try (var ps = conn.prepareStatement(query)) {
+            ps.setString(1, DATABASE_NAME);
+            try (var rs = ps.executeQuery()) {
+                if (!rs.next() || !rs.getString(1).equalsIgnoreCase("text")) {
+                    return;
+                }
+            }
+        }
+        try (var ps = conn.prepareStatement("ALTER TABLE game MODIFY `game` BLOB NOT NULL")) {
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Adds a column that tables created by an older version don't have yet.
+     *
+     * @return whether the column had to be added
+     */
+    private static boolean addColumnIfMissing(Connection conn, String table, String column, String definition) throws SQLException {
+        String query = "SELECT 1 FROM information_schema.COLUMNS WHERE TABLE_SCHEMA=? AND TABLE_NAME=? AND COLUMN_NAME=?";
+        try (var ps = conn.prepareStatement(query)) {
+            ps.setString(1, DATABASE_NAME);
+            ps.setString(2, table);
+            ps.setString(3, column);
+            try (var rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return false;
+                }
+            }
+        }
+        try (var ps = conn.prepareStatement("ALTER TABLE " + table + " ADD COLUMN `" + column + "` " + definition)) {
+            ps.executeUpdate();
+        }
+        return true;
+    }
+
+    /**
+     * Adds an index that tables created by an older version don't have yet.
+     */
+    private static void addIndexIfMissing(Connection conn, String table, String index, String columns) throws SQLException {
+        String query = "SELECT 1 FROM information_schema.STATISTICS WHERE TABLE_SCHEMA=? AND TABLE_NAME=? AND INDEX_NAME=?";
+        try (var ps = conn.prepareStatement(query)) {
+            ps.setString(1, DATABASE_NAME);
+            ps.setString(2, table);
+            ps.setString(3, index);
+            try (var rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        try (var ps = conn.prepareStatement("CREATE INDEX `" + index + "` ON " + table + " (" + columns + ")")) {
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Borrow a connection to the database from the pool, with the catalog set based upon
+     * the properties specified in db.properties. Connections to the database should
+     * be short-lived, and you must close the connection when you are done with it, which
+     * hands it back to the pool. The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
-     * try (var conn = DbInfo.getConnection(databaseName)) {
+     * try (var conn = DatabaseManager.getConnection()) {
      * // execute SQL statements.
      * }
      * </code>
      */
     static Connection getConnection() throws ResponseException {
         try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
+            return POOL.getConnection();
         } catch (SQLException e) {
             throw new ResponseException(500, e.getMessage());
         }
     }
-}
+
+    /**
+     * @return the connection pool's counters, including how long callers waited for a
+     * connection and how often prepared statements came from a connection's cache
+     */
+    public static ConnectionPool.Stats poolStats() {
+        return POOL.stats();
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+        conn.setCatalog(DATABASE_NAME);
+        return conn;
+    }
+}
\ No newline at end of file
@@ -1,15 +1,25 @@
 package dataaccess;
 
 import java.util.Collection;
+import java.util.List;
 
+import chess.ChessMove;
 import exception.ResponseException;
 import model.GameData;
+import model.GameSummary;
+import record.GameFilter;
 
 public interface GameAccess {
     GameData create(GameData data) throws ResponseException;
     GameData get(int gameID) throws ResponseException;
     Collection<GameData> getAll() throws ResponseException;
+    // Up to limit games matching the filter with ids after afterID, in id order, without any boards
+    List<GameSummary> getSummaries(GameFilter filter, int afterID, int limit) throws ResponseException;
     void edit(GameData data) throws ResponseException;
+    // Records a move just made on data's game, before anything else about the game changes
+    void addMove(GameData data, ChessMove move) throws ResponseException;
+    // Records moves made one after another on data's game, the last of which left it as data holds it
+    void addMoves(GameData data, List<ChessMove> moves) throws ResponseException;
     void addPlayer(int gameID, String color, String username) throws ResponseException;
     void removePlayer(int gameID, String username) throws ResponseException;
     void deleteAll() throws ResponseException;
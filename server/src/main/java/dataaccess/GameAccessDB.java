@@ -1,21 +1,66 @@
 package dataaccess;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.ChessMove;
+import chess.InvalidMoveException;
 import exception.ResponseException;
 import model.GameData;
+import model.GameSummary;
+import record.GameFilter;
+import serialization.Serializer;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
+/**
+ * Stores each game as a snapshot in the game table plus the moves made since then in
+ * game_move, one row per ply. A move only appends a row, the snapshot is rewritten every
+ * {@link #SNAPSHOT_INTERVAL} plies and when the game is edited, and loading a game replays
+ * the moves after its snapshot. The game_move rows are never deleted, so they double as
+ * the game's full move history.
+ */
 public class GameAccessDB implements GameAccess {
+    private static final int SNAPSHOT_INTERVAL = 16;
+    // Each game's snapshot, joined with the moves logged since it was written
+    private static final String SELECT_GAMES = "SELECT g.id, g.whiteUsername, g.blackUsername, g.gameName, g.game, m.ply, m.move "
+            + "FROM game g LEFT JOIN game_move m ON m.gameID = g.id AND m.ply >= g.snapshotPly";
+    // Never reads the game column, the move count comes from the newest logged move
+    private static final String SELECT_SUMMARIES = "SELECT g.id, g.whiteUsername, g.blackUsername, g.gameName, g.status, "
+            + "GREATEST(g.snapshotPly, COALESCE((SELECT MAX(m.ply) + 1 FROM game_move m WHERE m.gameID = g.id), 0)) AS moveCount "
+            + "FROM game g WHERE g.id > ?";
+
+    // Rows written before games were stored in binary hold JSON, an object or null
+    private static ChessGame readGame(byte[] bytes) throws ResponseException {
+        if (bytes.length == 0) {
+            return null;
+        }
+        try {
+            if (bytes[0] == '{' || bytes[0] == 'n') {
+                return Serializer.GSON.fromJson(new String(bytes, StandardCharsets.UTF_8), ChessGame.class);
+            }
+            return ChessGame.fromBytes(bytes);
+        } catch (RuntimeException e) {
+            throw new ResponseException(500, e.getMessage());
+        }
+    }
+
+    private static byte[] writeGame(ChessGame game) {
+        return game == null ? new byte[0] : game.toBytes();
+    }
+
     public GameData create(GameData data) throws ResponseException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var ps = conn.prepareStatement("INSERT INTO game (id, gameName, game) VALUES (?, ?, ?)")) {
+            try (var ps = conn.prepareStatement("INSERT INTO game (id, gameName, game, snapshotPly, status) VALUES (?, ?, ?, ?, ?)")) {
                 ps.setInt(1, data.gameID());
                 ps.setString(2, data.gameName());
-                ps.setString(3, new Gson().toJson(data.game()));
+                ps.setBytes(3, writeGame(data.game()));
+                ps.setInt(4, data.game() == null ? 0 : Math.max(data.game().getPly(), 0));
+                ps.setString(5, GameSummary.statusOf(data.game()).name());
                 ps.executeUpdate();
             }
         } catch (SQLException e) {
@@ -26,21 +71,14 @@ public class GameAccessDB implements GameAccess {
 
     public GameData get(int gameID) throws ResponseException {
         try (var conn = DatabaseManager.getConnection()) {
-            try (var ps = conn.prepareStatement("SELECT id, whiteUsername, blackUsername, gameName, game FROM game WHERE id=?")) {
+            try (var ps = conn.prepareStatement(SELECT_GAMES + " WHERE g.id=? ORDER BY m.ply")) {
                 ps.setInt(1, gameID);
                 try (var rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        var json = rs.getString("game");
-                        var game = new Gson().fromJson(json, ChessGame.class);
-                        return new GameData(
-                                rs.getInt("id"),
-                                rs.getString("whiteUsername"),
-                                rs.getString("blackUsername"),
-                                rs.getString("gameName"),
-                                game
-                        );
+                    var games = readGames(rs);
+                    if (games.isEmpty()) {
+                        throw ResponseException.badRequest();
                     }
-                    throw ResponseException.badRequest();
+                    return games.getFirst();
                 }
             }
         } catch (SQLException e) {
@@ -50,31 +88,119 @@ public class GameAccessDB implements GameAccess {
 
     // Does not validate moves or turns etc
     public void edit(GameData data) throws ResponseException {
+        int ply = data.game() == null ? -1 : data.game().getPly();
         try (var conn = DatabaseManager.getConnection()) {
-            try (var ps = conn.prepareStatement("UPDATE game SET game=? WHERE id=?")) {
-                ps.setString(1, new Gson().toJson(data.game()));
-                ps.setInt(2, data.gameID());
-                ps.executeUpdate();
+            // An ended game takes no more moves, so there's nothing to replay onto it
+            if (ply < 0) {
+                try (var ps = conn.prepareStatement("UPDATE game SET game=?, status=? WHERE id=?")) {
+                    ps.setBytes(1, writeGame(data.game()));
+                    ps.setString(2, GameSummary.statusOf(data.game()).name());
+                    ps.setInt(3, data.gameID());
+                    ps.executeUpdate();
+                }
+            } else {
+                writeSnapshot(conn, data, ply);
+            }
+        } catch (SQLException e) {
+            throw new ResponseException(500, e.getMessage());
+        }
+    }
+
+    public void addMove(GameData data, ChessMove move) throws ResponseException {
+        addMoves(data, List.of(move));
+    }
+
+    // Logs the moves as one batch, snapshotting once if they pass a snapshot ply
+    public void addMoves(GameData data, List<ChessMove> moves) throws ResponseException {
+        int ply = data.game().getPly();
+        int first = ply - moves.size();
+        if (ply <= 0 || first < 0) {
+            throw new ResponseException(500, "Moves can only be logged while the game is in progress");
+        }
+        try (var conn = DatabaseManager.getConnection()) {
+            boolean snapshot = ply / SNAPSHOT_INTERVAL > first / SNAPSHOT_INTERVAL;
+            boolean transaction = snapshot || moves.size() > 1;
+            if (transaction) {
+                conn.setAutoCommit(false);
+            }
+            try (var ps = conn.prepareStatement("INSERT INTO game_move (gameID, ply, move) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < moves.size(); i++) {
+                    ps.setInt(1, data.gameID());
+                    ps.setInt(2, first + i);
+                    ps.setString(3, moves.get(i).toNotation());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            if (snapshot) {
+                writeSnapshot(conn, data, ply);
+            }
+            if (transaction) {
+                conn.commit();
             }
         } catch (SQLException e) {
             throw new ResponseException(500, e.getMessage());
         }
     }
 
+    private static void writeSnapshot(Connection conn, GameData data, int ply) throws SQLException {
+        try (var ps = conn.prepareStatement("UPDATE game SET game=?, snapshotPly=?, status=? WHERE id=?")) {
+            ps.setBytes(1, data.game().toBytes());
+            ps.setInt(2, ply);
+            ps.setString(3, GameSummary.statusOf(data.game()).name());
+            ps.setInt(4, data.gameID());
+            ps.executeUpdate();
+        }
+    }
+
     public Collection<GameData> getAll() throws ResponseException {
-        var games = new ArrayList<GameData>();
         try (var conn = DatabaseManager.getConnection()) {
-            try (var ps = conn.prepareStatement("SELECT id, whiteUsername, blackUsername, gameName, game FROM game")) {
+            try (var ps = conn.prepareStatement(SELECT_GAMES + " ORDER BY g.id, m.ply")) {
+                try (var rs = ps.executeQuery()) {
+                    return readGames(rs);
+                }
+            }
+        } catch (SQLException e) {
+            throw new ResponseException(500, e.getMessage());
+        }
+    }
+
+    // Keyset pagination, each page starts after the last id of the one before
+    public List<GameSummary> getSummaries(GameFilter filter, int afterID, int limit) throws ResponseException {
+        var query = new StringBuilder(SELECT_SUMMARIES);
+        if (filter.openSeats()) {
+            query.append(" AND (g.whiteUsername IS NULL OR g.blackUsername IS NULL)");
+        }
+        if (filter.status() != null) {
+            query.append(" AND g.status = ?");
+        }
+        if (filter.player() != null) {
+            query.append(" AND (g.whiteUsername = ? OR g.blackUsername = ?)");
+        }
+        query.append(" ORDER BY g.id LIMIT ?");
+
+        var summaries = new ArrayList<GameSummary>();
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var ps = conn.prepareStatement(query.toString())) {
+                int index = 1;
+                ps.setInt(index++, afterID);
+                if (filter.status() != null) {
+                    ps.setString(index++, filter.status().name());
+                }
+                if (filter.player() != null) {
+                    ps.setString(index++, filter.player());
+                    ps.setString(index++, filter.player());
+                }
+                ps.setInt(index, limit);
                 try (var rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        var json = rs.getString("game");
-                        var game = new Gson().fromJson(json, ChessGame.class);
-                        games.add(new GameData(
+                        summaries.add(new GameSummary(
                                 rs.getInt("id"),
                                 rs.getString("whiteUsername"),
                                 rs.getString("blackUsername"),
                                 rs.getString("gameName"),
-                                game
+                                ChessGame.GameStatus.valueOf(rs.getString("status")),
+                                rs.getInt("moveCount")
                         ));
                     }
                 }
@@ -82,9 +208,75 @@ public class GameAccessDB implements GameAccess {
         } catch (SQLException e) {
             throw new ResponseException(500, e.getMessage());
         }
+        return summaries;
+    }
+
+    /**
+     * Sets the status of games stored before it had its own column, which default to in
+     * progress. Only run once, when the column is added.
+     */
+    static void fillStatuses(Connection conn) throws SQLException, ResponseException {
+        var ended = new ArrayList<Integer>();
+        try (var ps = conn.prepareStatement("SELECT id, game FROM game")) {
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (GameSummary.statusOf(readGame(rs.getBytes("game"))) == ChessGame.GameStatus.ENDED) {
+                        ended.add(rs.getInt("id"));
+                    }
+                }
+            }
+        }
+        try (var ps = conn.prepareStatement("UPDATE game SET status='ENDED' WHERE id=?")) {
+            for (int id : ended) {
+                ps.setInt(1, id);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Reads rows of {@link #SELECT_GAMES} ordered by game then ply, replaying each game's
+     * logged moves onto its snapshot.
+     */
+    private static List<GameData> readGames(ResultSet rs) throws SQLException, ResponseException {
+        var games = new ArrayList<GameData>();
+        GameData current = null;
+        while (rs.next()) {
+            int id = rs.getInt("id");
+            if (current == null || current.gameID() != id) {
+                current = new GameData(
+                        id,
+                        rs.getString("whiteUsername"),
+                        rs.getString("blackUsername"),
+                        rs.getString("gameName"),
+                        readGame(rs.getBytes("game"))
+                );
+                games.add(current);
+            }
+            String move = rs.getString("move");
+            if (move != null) {
+                replay(current.game(), rs.getInt("ply"), move);
+            }
+        }
         return games;
     }
 
+    private static void replay(ChessGame game, int ply, String move) throws ResponseException {
+        int expected = game == null ? -1 : game.getPly();
+        // Already part of the snapshot, which is always the case once the game has ended
+        if (expected < 0 || ply < expected) {
+            return;
+        }
+        if (ply > expected) {
+            throw new ResponseException(500, "Missing moves in game log");
+        }
+        try {
+            game.makeMove(ChessMove.fromNotation(move));
+        } catch (InvalidMoveException | RuntimeException e) {
+            throw new ResponseException(500, "Invalid move in game log: " + move);
+        }
+    }
+
     public void addPlayer(int gameID, String color, String username) throws ResponseException {
         GameData data = this.get(gameID);
         String whiteUsername = data.whiteUsername();
@@ -141,6 +333,9 @@ public class GameAccessDB implements GameAccess {
             try (var ps = conn.prepareStatement("TRUNCATE game")) {
                 ps.executeUpdate();
             }
+            try (var ps = conn.prepareStatement("TRUNCATE game_move")) {
+                ps.executeUpdate();
+            }
         } catch (SQLException e) {
             throw new ResponseException(500, e.getMessage());
         }
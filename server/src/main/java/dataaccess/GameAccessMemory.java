@@ -1,11 +1,17 @@
 package dataaccess;
 
+import chess.ChessMove;
 import exception.ResponseException;
 import model.GameData;
+import model.GameSummary;
+import record.GameFilter;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 
 public class GameAccessMemory implements GameAccess {
     private HashMap<Integer, GameData> rows = new HashMap<>();
@@ -27,10 +33,30 @@ public class GameAccessMemory implements GameAccess {
         rows.replace(data.gameID(), data);
     }
 
+    public void addMove(GameData data, ChessMove move) throws ResponseException {
+        rows.replace(data.gameID(), data);
+    }
+
+    public void addMoves(GameData data, List<ChessMove> moves) throws ResponseException {
+        rows.replace(data.gameID(), data);
+    }
+
     public Collection<GameData> getAll() {
         return rows.values();
     }
 
+    public List<GameSummary> getSummaries(GameFilter filter, int afterID, int limit) {
+        var summaries = new ArrayList<GameSummary>();
+        for (GameData data : rows.values()) {
+            GameSummary summary = GameSummary.of(data, 0);
+            if (summary.gameID() > afterID && filter.matches(summary)) {
+                summaries.add(summary);
+            }
+        }
+        summaries.sort(Comparator.comparingInt(GameSummary::gameID));
+        return summaries.size() > limit ? summaries.subList(0, limit) : summaries;
+    }
+
     public void addPlayer(int gameID, String color, String username) throws ResponseException {
         GameData data = this.get(gameID);
         String whiteUsername = data.whiteUsername();
@@ -0,0 +1,451 @@
+package dataaccess;
+
+import chess.ChessMove;
+import exception.ResponseException;
+import model.GameData;
+import model.GameSummary;
+import record.GameFilter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps active games in memory in front of another GameAccess. Reads of a cached game skip
+ * the database. Moves and edits update memory right away and are written to the
+ * delegate on a background thread every flush delay, each game's in order. A game's moves
+ * queued one after another are written as one batch, and edits in a row as just the last.
+ * <p>
+ * The flush delay is the durability window: a crash loses at most the writes made in the
+ * last delay, plus whatever was queued while the database was unreachable. Queued writes
+ * are never given up on, since a move missing from the log would leave the game unable to
+ * load. Each game has its own queue, so a game whose write fails is retried with
+ * exponential backoff while the other games keep flushing. Once a game has
+ * maxPendingPerGame writes queued, or all games have maxPending, the caller flushes them
+ * itself; if that doesn't make room, new writes are rejected before they're queued, so
+ * callers either get an error or a write that will reach the database. {@link #close()}
+ * flushes everything that's left.
+ * <p>
+ * A move is only queued if it follows the newest known state of its game, so two callers
+ * that loaded the same game can't both log a move for the same ply.
+ * <p>
+ * Joining, leaving and creating games check the stored game, so they're written through.
+ */
+public class GameAccessWriteBehind implements GameAccess, AutoCloseable {
+    /**
+     * A snapshot of the write queues, latencies are in nanoseconds.
+     */
+    public record Stats(int queued, int cachedGames, int failingGames, long flushes, long written, long failures,
+                        long rejected, long lastFlushNanos, long maxFlushNanos) {}
+
+    // The longest a failing game waits between retries
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final GameAccess delegate;
+    private final long flushDelayNanos;
+    private final int maxPending;
+    private final int maxPendingPerGame;
+    private final int maxGames;
+    private final ScheduledThreadPoolExecutor flusher;
+
+    // Guards the cache and the queues, held only briefly
+    private final Object lock = new Object();
+    // Serializes flushes so writes reach the delegate in the order they were made
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LinkedHashMap<Integer, GameData> cache;
+    // Every game with queued writes, which must not be evicted, in the order they were dirtied
+    private final LinkedHashMap<Integer, GameQueue> dirty = new LinkedHashMap<>();
+
+    private int queued;
+    private long flushes;
+    private long written;
+    private long failures;
+    private long rejected;
+    private long lastFlushNanos;
+    private long maxFlushNanos;
+
+    // Moves to log or, without any, a whole game to rewrite
+    private static class PendingWrite {
+        GameData data;
+        final List<ChessMove> moves;
+
+        PendingWrite(GameData data, List<ChessMove> moves) {
+            this.data = data;
+            this.moves = moves;
+        }
+    }
+
+    // Writes that reach the delegate in one call, standing in for count queued ones
+    private record Batch(GameData data, List<ChessMove> moves, int count) {}
+
+    private static class GameQueue {
+        final ArrayDeque<PendingWrite> writes = new ArrayDeque<>();
+        GameData latest;
+        // Flushes of this game that have failed in a row, and when the next is worth trying
+        int failures;
+        long retryAt;
+
+        // Joins the writes at the head of the queue that are the same kind, called holding the lock
+        Batch nextBatch() {
+            Iterator<PendingWrite> pending = writes.iterator();
+            PendingWrite last = pending.next();
+            List<ChessMove> moves = last.moves == null ? null : new ArrayList<>(last.moves);
+            int count = 1;
+            while (pending.hasNext()) {
+                PendingWrite next = pending.next();
+                if ((next.moves == null) != (moves == null)) {
+                    break;
+                }
+                if (moves != null) {
+                    moves.addAll(next.moves);
+                }
+                last = next;
+                count++;
+            }
+            return new Batch(last.data, moves, count);
+        }
+    }
+
+    /**
+     * @param flushDelayMillis  how long a write may wait in memory before it's flushed
+     * @param maxPending        how many writes may be queued before callers flush them
+     * @param maxPendingPerGame how many of those may be for one game
+     * @param maxGames          how many games to keep in memory
+     */
+    public GameAccessWriteBehind(GameAccess delegate, long flushDelayMillis, int maxPending, int maxPendingPerGame,
+                                 int maxGames) {
+        this.delegate = delegate;
+        this.flushDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushDelayMillis));
+        this.maxPending = maxPending;
+        this.maxPendingPerGame = maxPendingPerGame;
+        this.maxGames = maxGames;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, GameData> eldest) {
+                return size() > GameAccessWriteBehind.this.maxGames;
+            }
+        };
+        this.flusher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "game-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::backgroundFlush, flushDelayNanos, flushDelayNanos,
+                TimeUnit.NANOSECONDS);
+    }
+
+    public GameData create(GameData data) throws ResponseException {
+        return delegate.create(data);
+    }
+
+    // Callers change the game they get back, so each gets their own copy
+    public GameData get(int gameID) throws ResponseException {
+        synchronized (lock) {
+            GameQueue pending = dirty.get(gameID);
+            GameData cached = pending != null ? pending.latest : cache.get(gameID);
+            if (cached != null) {
+                return copy(cached);
+            }
+        }
+        GameData loaded = delegate.get(gameID);
+        synchronized (lock) {
+            // Only cache what was loaded if nothing newer arrived in the meantime
+            if (!dirty.containsKey(gameID)) {
+                cache.putIfAbsent(gameID, copy(loaded));
+            }
+        }
+        return loaded;
+    }
+
+    public Collection<GameData> getAll() throws ResponseException {
+        Collection<GameData> stored = delegate.getAll();
+        List<GameData> games = new ArrayList<>(stored.size());
+        synchronized (lock) {
+            for (GameData game : stored) {
+                GameQueue pending = dirty.get(game.gameID());
+                games.add(pending == null ? game : copy(pending.latest));
+            }
+        }
+        return games;
+    }
+
+    // Filtered on what's stored, a game only moves between filters once its writes are flushed
+    public List<GameSummary> getSummaries(GameFilter filter, int afterID, int limit) throws ResponseException {
+        List<GameSummary> stored = delegate.getSummaries(filter, afterID, limit);
+        List<GameSummary> summaries = new ArrayList<>(stored.size());
+        synchronized (lock) {
+            for (GameSummary summary : stored) {
+                GameQueue pending = dirty.get(summary.gameID());
+                summaries.add(pending == null ? summary : GameSummary.of(pending.latest, summary.moveCount()));
+            }
+        }
+        return summaries;
+    }
+
+    public void edit(GameData data) throws ResponseException {
+        enqueue(new PendingWrite(copy(data), null));
+    }
+
+    /**
+     * @throws ResponseException with 409 if the game has moved on since data was loaded
+     */
+    public void addMove(GameData data, ChessMove move) throws ResponseException {
+        enqueue(new PendingWrite(copy(data), List.of(move)));
+    }
+
+    /**
+     * @throws ResponseException with 409 if the game has moved on since data was loaded
+     */
+    public void addMoves(GameData data, List<ChessMove> moves) throws ResponseException {
+        enqueue(new PendingWrite(copy(data), List.copyOf(moves)));
+    }
+
+    public void addPlayer(int gameID, String color, String username) throws ResponseException {
+        delegate.addPlayer(gameID, color, username);
+        boolean white = color.equals("WHITE");
+        updatePlayers(gameID, data -> new GameData(data.gameID(),
+                white ? username : data.whiteUsername(), white ? data.blackUsername() : username,
+                data.gameName(), data.game()));
+    }
+
+    public void removePlayer(int gameID, String username) throws ResponseException {
+        delegate.removePlayer(gameID, username);
+        updatePlayers(gameID, data -> {
+            boolean white = username.equals(data.whiteUsername());
+            return new GameData(data.gameID(),
+                    white ? null : data.whiteUsername(), white ? data.blackUsername() : null,
+                    data.gameName(), data.game());
+        });
+    }
+
+    public void deleteAll() throws ResponseException {
+        flushLock.lock();
+        try {
+            synchronized (lock) {
+                queued = 0;
+                dirty.clear();
+                cache.clear();
+            }
+            delegate.deleteAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes every queued write to the delegate, each game's in order.
+     *
+     * @throws ResponseException if one fails, the first failure once every game has been
+     *                           tried. The failed write and the rest of its game stay
+     *                           queued to be retried.
+     */
+    public void flush() throws ResponseException {
+        flush(false);
+    }
+
+    public Stats stats() {
+        synchronized (lock) {
+            int failing = 0;
+            for (GameQueue game : dirty.values()) {
+                if (game.failures > 0) {
+                    failing++;
+                }
+            }
+            return new Stats(queued, cache.size() + dirty.size(), failing, flushes, written, failures, rejected,
+                    lastFlushNanos, maxFlushNanos);
+        }
+    }
+
+    /**
+     * Stops the background flusher and writes everything still queued.
+     */
+    @Override
+    public void close() throws ResponseException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * @throws ResponseException with 409 if a move doesn't follow the game's newest state,
+     *                           or 503 if the queue is full and can't be flushed, in which
+     *                           case the write isn't queued. Once queued, a write never
+     *                           reports an error.
+     */
+    private void enqueue(PendingWrite write) throws ResponseException {
+        int gameID = write.data.gameID();
+        if (isFull(gameID)) {
+            flushIfDue();
+        }
+        synchronized (lock) {
+            GameQueue game = dirty.get(gameID);
+            GameData latest = game != null ? game.latest : cache.get(gameID);
+            if (write.moves != null && latest != null && latest.game() != null
+                    && latest.game().getPly() + write.moves.size() != write.data.game().getPly()) {
+                throw new ResponseException(409, "the game has changed since it was loaded, try again");
+            }
+            if (queued >= maxPending || (game != null && game.writes.size() >= maxPendingPerGame)) {
+                rejected++;
+                throw new ResponseException(503, "too many unsaved moves, try again shortly");
+            }
+            if (game == null) {
+                game = new GameQueue();
+                dirty.put(gameID, game);
+            }
+            game.latest = write.data;
+            game.writes.addLast(write);
+            queued++;
+            cache.remove(gameID);
+        }
+        if (isFull(gameID)) {
+            flushIfDue();
+        }
+    }
+
+    private boolean isFull(int gameID) {
+        synchronized (lock) {
+            GameQueue game = dirty.get(gameID);
+            return queued >= maxPending || (game != null && game.writes.size() >= maxPendingPerGame);
+        }
+    }
+
+    // Players are written through, so the cached copy is stale once they change. Queued
+    // writes carry the old players, so they're brought up to date in place.
+    private void updatePlayers(int gameID, UnaryOperator<GameData> update) {
+        synchronized (lock) {
+            cache.remove(gameID);
+            GameQueue game = dirty.get(gameID);
+            if (game == null) {
+                return;
+            }
+            game.latest = update.apply(game.latest);
+            for (PendingWrite write : game.writes) {
+                write.data = update.apply(write.data);
+            }
+        }
+    }
+
+    /**
+     * @param skipBackingOff whether to leave games that failed recently for their retry
+     */
+    private void flush(boolean skipBackingOff) throws ResponseException {
+        flushLock.lock();
+        try {
+            List<Integer> gameIDs;
+            synchronized (lock) {
+                gameIDs = new ArrayList<>(dirty.keySet());
+            }
+            long start = System.nanoTime();
+            int count = 0;
+            ResponseException failure = null;
+            for (int gameID : gameIDs) {
+                try {
+                    count += flushGame(gameID, skipBackingOff);
+                } catch (ResponseException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (count > 0) {
+                long elapsed = System.nanoTime() - start;
+                synchronized (lock) {
+                    flushes++;
+                    lastFlushNanos = elapsed;
+                    maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Writes one game's queue in batches until it's empty or a batch fails, called holding
+    // the flush lock. Returns how many queued writes were written.
+    private int flushGame(int gameID, boolean skipBackingOff) throws ResponseException {
+        int count = 0;
+        while (true) {
+            Batch batch;
+            synchronized (lock) {
+                GameQueue game = dirty.get(gameID);
+                if (game == null || (skipBackingOff && game.failures > 0 && System.nanoTime() - game.retryAt < 0)) {
+                    return count;
+                }
+                batch = game.nextBatch();
+            }
+            try {
+                if (batch.moves() == null) {
+                    delegate.edit(batch.data());
+                } else {
+                    delegate.addMoves(batch.data(), batch.moves());
+                }
+            } catch (ResponseException e) {
+                synchronized (lock) {
+                    GameQueue game = dirty.get(gameID);
+                    failures++;
+                    game.failures++;
+                    game.retryAt = System.nanoTime() + backoffNanos(game.failures);
+                }
+                throw e;
+            }
+            synchronized (lock) {
+                GameQueue game = dirty.get(gameID);
+                for (int i = 0; i < batch.count(); i++) {
+                    game.writes.pollFirst();
+                }
+                queued -= batch.count();
+                written += batch.count();
+                count += batch.count();
+                game.failures = 0;
+                if (game.writes.isEmpty()) {
+                    dirty.remove(gameID);
+                    cache.put(gameID, game.latest);
+                }
+            }
+        }
+    }
+
+    // Flushes on the caller's thread, leaving games that are backing off
+    private void flushIfDue() {
+        try {
+            flush(true);
+        } catch (ResponseException e) {
+            System.out.println("Failed to flush games: " + e.getMessage());
+        }
+    }
+
+    private void backgroundFlush() {
+        try {
+            flush(true);
+        } catch (ResponseException e) {
+            System.out.println("Failed to flush games, retrying: " + e.getMessage());
+        }
+    }
+
+    // Doubles with every failure in a row
+    private long backoffNanos(int failuresInARow) {
+        int doublings = Math.min(failuresInARow - 1, 20);
+        return Math.min(MAX_BACKOFF_NANOS, flushDelayNanos << doublings);
+    }
+
+    private static GameData copy(GameData data) {
+        return new GameData(data.gameID(), data.whiteUsername(), data.blackUsername(), data.gameName(),
+                data.game() == null ? null : data.game().copy());
+    }
+}
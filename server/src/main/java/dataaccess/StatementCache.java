@@ -0,0 +1,180 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The prepared statements of one pooled connection, kept open between uses and keyed by
+ * their SQL so each query is only prepared once per connection. The least recently used
+ * statement is closed once the cache is full.
+ * <p>
+ * Only the thread holding the connection touches its cache, so it isn't synchronized.
+ * Statements handed out report the borrower's lease as their connection, never the
+ * pooled connection behind it, so closing that can't skip the pool.
+ */
+class StatementCache {
+    private final Connection connection;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LinkedHashMap<String, Entry> statements;
+
+    private static class Entry {
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean evicted;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    StatementCache(Connection connection, int capacity, LongAdder hits, LongAdder misses) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= StatementCache.this.capacity) {
+                    return false;
+                }
+                Entry entry = eldest.getValue();
+                if (entry.inUse) {
+                    entry.evicted = true;
+                } else {
+                    closeQuietly(entry.statement);
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param lease the connection the borrower holds, which statements give as their own
+     * @return a handle to the cached statement for the SQL, whose close makes it available
+     * to the next caller instead of closing it
+     */
+    PreparedStatement prepare(String sql, Connection lease) throws SQLException {
+        Entry entry = statements.get(sql);
+        if (entry == null || entry.inUse) {
+            misses.increment();
+            PreparedStatement statement = connection.prepareStatement(sql);
+            // Nested use of a query already open on this connection gets its own statement
+            if (capacity == 0 || entry != null) {
+                return owned(statement, PreparedStatement.class, lease);
+            }
+            entry = new Entry(statement);
+            statements.put(sql, entry);
+        } else {
+            hits.increment();
+        }
+        entry.inUse = true;
+        return handle(entry, lease);
+    }
+
+    /**
+     * Wraps a statement that isn't cached so it gives the lease as its connection
+     *
+     * @param type the statement interface to implement, as the connection method returned it
+     */
+    static <T extends Statement> T owned(Statement statement, Class<T> type, Connection lease) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getConnection" -> {
+                    return lease;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }));
+    }
+
+    /**
+     * Called when the connection goes back to the pool. Statements still checked out were
+     * leaked by the borrower, so they're closed rather than handed to the next one.
+     */
+    void release() {
+        Iterator<Entry> entries = statements.values().iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.inUse) {
+                entry.evicted = true;
+                entries.remove();
+                closeQuietly(entry.statement);
+            }
+        }
+    }
+
+    private PreparedStatement handle(Entry entry, Connection lease) {
+        PreparedStatement statement = entry.statement;
+        boolean[] closed = {false};
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                checkIn(entry);
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            return closed[0] || statement.isClosed();
+                        }
+                        case "getConnection" -> {
+                            return lease;
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                    }
+                    if (closed[0]) {
+                        throw new SQLException("Statement is closed");
+                    }
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private void checkIn(Entry entry) throws SQLException {
+        entry.inUse = false;
+        if (entry.evicted) {
+            entry.statement.close();
+            return;
+        }
+        entry.statement.clearParameters();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // The connection cleans up after it either way
+        }
+    }
+}
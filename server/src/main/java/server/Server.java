@@ -1,9 +1,12 @@
 package server;
 
-import com.google.gson.Gson;
+import chess.ChessGame;
 import com.google.gson.JsonSyntaxException;
 import dataaccess.*;
 import exception.ResponseException;
+import serialization.Serializer;
+import server.websocket.Connection;
+import server.websocket.ConnectionManager;
 import server.websocket.WebSocketHandler;
 import service.AuthService;
 import service.DatabaseService;
@@ -12,12 +15,18 @@ import service.UserService;
 import spark.*;
 import record.*;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class Server {
     private final AuthService authService;
     private final GameService gameService;
     private final UserService userService;
     private final DatabaseService databaseService;
     private final WebSocketHandler webSocketHandler;
+    private final GameAccessWriteBehind gameAccess;
+    private final AuthAccessCached authAccess;
+    private final ConnectionManager connections;
 
     public Server() {
         try {
@@ -25,8 +34,17 @@ public class Server {
         } catch (Exception e) {
             System.out.println("Failed to start server: " + e.getMessage());
         }
-        AuthAccess authAccess = new AuthAccessDB();
-        GameAccess gameAccess = new GameAccessDB();
+        Settings settings = new Settings("db.properties");
+        authAccess = new AuthAccessCached(new AuthAccessDB(),
+                settings.get("db.authCache.ttl", 60_000L),
+                settings.get("db.authCache.negativeTtl", 5_000L),
+                settings.get("db.authCache.maxSize", 10_000));
+        // Moves are written behind, db.writeBehind.delay ms is how many a crash can lose
+        gameAccess = new GameAccessWriteBehind(new GameAccessDB(),
+                settings.get("db.writeBehind.delay", 100L),
+                settings.get("db.writeBehind.maxPending", 1000),
+                settings.get("db.writeBehind.maxPendingPerGame", 100),
+                settings.get("db.writeBehind.maxGames", 1000));
         UserAccess userAccess = new UserAccessDB();
 
         authService = new AuthService(authAccess, userAccess);
@@ -34,7 +52,11 @@ public class Server {
         userService = new UserService(authAccess, userAccess);
         databaseService = new DatabaseService(authAccess, gameAccess, userAccess);
 
-        webSocketHandler = new WebSocketHandler(authAccess, gameAccess);
+        // Clients that fall ws.queueSize messages behind are handled by ws.overflowPolicy
+        connections = new ConnectionManager(
+                settings.get("ws.queueSize", ConnectionManager.DEFAULT_QUEUE_CAPACITY),
+                Connection.OverflowPolicy.valueOf(settings.get("ws.overflowPolicy", "COALESCE")));
+        webSocketHandler = new WebSocketHandler(authAccess, gameAccess, connections);
     }
 
     public int run(int desiredPort) {
@@ -51,6 +73,7 @@ public class Server {
         Spark.post("/game", this::createGame);
         Spark.get("/game", this::listGames);
         Spark.put("/game", this::joinGame);
+        Spark.get("/metrics", this::metrics);
         Spark.exception(ResponseException.class, this::exceptionHandler);
 
         Spark.awaitInitialization();
@@ -68,13 +91,13 @@ public class Server {
             throw ResponseException.badRequest();
         }
         RegisterResult registerResult = this.userService.register(data);
-        return new Gson().toJson(registerResult);
+        return Serializer.GSON.toJson(registerResult);
     }
 
     private Object login(Request req, Response res) throws ResponseException {
         LoginRequest data = serialize(req.body(), LoginRequest.class);
         LoginResult loginResult = this.authService.login(data);
-        return new Gson().toJson(loginResult);
+        return Serializer.GSON.toJson(loginResult);
     }
 
     private Object logout(Request req, Response res) throws ResponseException {
@@ -87,13 +110,45 @@ public class Server {
         String authToken = req.headers("authorization");
         CreateGameRequest data = serialize(req.body(), CreateGameRequest.class);
         CreateGameResponse createGameResponse = this.gameService.create(data, authToken);
-        return new Gson().toJson(createGameResponse);
+        return Serializer.GSON.toJson(createGameResponse);
     }
 
+    /*
+     * Lists a page of summaries without boards, full=true lists every game's state instead.
+     * Takes after (the previous page's next cursor), limit, open=true, status and player.
+     */
     private Object listGames(Request req, Response res) throws ResponseException {
         String authToken = req.headers("authorization");
-        ListGamesResponse games = gameService.listGames(authToken);
-        return new Gson().toJson(games);
+        if ("true".equals(req.queryParams("full"))) {
+            ListGamesResponse games = gameService.listGames(authToken);
+            return Serializer.GSON.toJson(games);
+        }
+        GameFilter filter;
+        int after;
+        int limit;
+        try {
+            String status = req.queryParams("status");
+            filter = new GameFilter(
+                    "true".equals(req.queryParams("open")),
+                    status == null ? null : ChessGame.GameStatus.valueOf(status),
+                    req.queryParams("player")
+            );
+            after = queryInt(req, "after", 0);
+            limit = queryInt(req, "limit", GameService.DEFAULT_PAGE_SIZE);
+        } catch (IllegalArgumentException e) {
+            throw ResponseException.badRequest();
+        }
+        if (filter.status() != null && filter.status() != ChessGame.GameStatus.IN_PROGRESS
+                && filter.status() != ChessGame.GameStatus.ENDED) {
+            throw ResponseException.badRequest();
+        }
+        ListGameSummariesResponse games = gameService.listGameSummaries(authToken, filter, after, limit);
+        return Serializer.GSON.toJson(games);
+    }
+
+    private static int queryInt(Request req, String name, int fallback) {
+        String value = req.queryParams(name);
+        return value == null ? fallback : Integer.parseInt(value);
     }
 
     private Object joinGame(Request req, Response res) throws ResponseException {
@@ -106,10 +161,31 @@ public class Server {
         return "{}";
     }
 
+    /*
+     * Counters for watching the server under load, latencies are in nanoseconds. The pool
+     * section covers how long requests waited for a database connection, how many
+     * connections were evicted and how often prepared statements came from the cache.
+     * gameWrites shows how far the write-behind queues are behind the database, and
+     * websocket how far behind clients are and how many were dropped for it.
+     */
+    private Object metrics(Request req, Response res) {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        ConnectionPool.Stats pool = DatabaseManager.poolStats();
+        metrics.put("pool", pool);
+        metrics.put("poolAverageWaitNanos", pool.averageWaitNanos());
+        metrics.put("statementHitRate", pool.statementHitRate());
+        metrics.put("gameWrites", gameAccess.stats());
+        AuthAccessCached.Stats auth = authAccess.stats();
+        metrics.put("authCache", auth);
+        metrics.put("authCacheHitRate", auth.hitRate());
+        metrics.put("websocket", connections.stats());
+        return Serializer.GSON.toJson(metrics);
+    }
+
     // Generics moment
     public static <T> T serialize(String body, Class<T> obj) throws ResponseException {
         try {
-            T serialized = new Gson().fromJson(body, obj);
+            T serialized = Serializer.GSON.fromJson(body, obj);
             if (serialized == null) {
                 throw ResponseException.badRequest();
             }
@@ -127,5 +203,10 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        try {
+            gameAccess.close();
+        } catch (ResponseException e) {
+            System.out.println("Failed to save games: " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,49 @@
+package server;
+
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Optional tuning settings for the server, read from db.properties alongside the
+ * database's own. Every setting has a default, so a missing file or key is fine.
+ */
+public class Settings {
+    private final Properties properties = new Properties();
+
+    /**
+     * @param resource the properties file to read from the classpath
+     */
+    public Settings(String resource) {
+        try (var stream = Thread.currentThread().getContextClassLoader().getResourceAsStream(resource)) {
+            if (stream != null) {
+                properties.load(stream);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("unable to read " + resource + ". " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the numeric setting, or the fallback if it isn't set
+     */
+    public long get(String name, long fallback) {
+        String value = properties.getProperty(name);
+        return value == null ? fallback : Long.parseLong(value.trim());
+    }
+
+    /**
+     * @return the numeric setting, or the fallback if it isn't set
+     */
+    public int get(String name, int fallback) {
+        String value = properties.getProperty(name);
+        return value == null ? fallback : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * @return the setting, or the fallback if it isn't set
+     */
+    public String get(String name, String fallback) {
+        String value = properties.getProperty(name);
+        return value == null ? fallback : value.trim();
+    }
+}
@@ -1,21 +1,174 @@
 package server.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import websocket.messages.ServerMessage;
 
-import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 
+/**
+ * One session's place in a game. Messages are queued and written with Jetty's async send
+ * one at a time, so a slow client only backs up its own queue instead of the thread
+ * sending to it. What happens once the queue is full depends on the overflow policy.
+ */
 public class Connection {
+    /**
+     * What to do with a message for a client whose queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Make room by dropping the oldest queued board, disconnecting if there are none.
+         */
+        DROP_OLDEST_LOAD_GAME,
+        /**
+         * Only keep the newest board, a new one replaces any still queued. Disconnects once
+         * the queue fills anyway.
+         */
+        COALESCE,
+        /**
+         * Disconnect as soon as the queue is full.
+         */
+        DISCONNECT
+    }
+
     public String username;
     public int gameID;
     public Session session;
 
-    public Connection(String username, int gameID, Session session) {
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final ConnectionManager manager;
+    private final ConnectionManager.Counters counters;
+
+    private final ArrayDeque<Outbound> queue = new ArrayDeque<>();
+    // Whether a write is in flight, only one is at a time to keep messages in order
+    private boolean sending;
+    private boolean closed;
+
+    private record Outbound(ServerMessage.ServerMessageType type, String payload) {}
+
+    Connection(String username, int gameID, Session session, int capacity, OverflowPolicy policy,
+               ConnectionManager manager) {
         this.username = username;
         this.gameID = gameID;
         this.session = session;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.manager = manager;
+        this.counters = manager.counters;
+    }
+
+    /**
+     * Queues the serialized message without waiting for it to be written.
+     */
+    public void send(ServerMessage.ServerMessageType type, String payload) {
+        Outbound next = null;
+        boolean slow = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (type == ServerMessage.ServerMessageType.LOAD_GAME && policy == OverflowPolicy.COALESCE) {
+                // A newer board makes the queued ones stale
+                counters.coalesced.add(removeLoadGames(false));
+            }
+            if (queue.size() >= capacity && !makeRoom()) {
+                // The client isn't reading fast enough to be worth keeping
+                counters.slowDisconnects.increment();
+                markClosed();
+                slow = true;
+            } else {
+                queue.addLast(new Outbound(type, payload));
+                counters.maxDepth.accumulate(queue.size());
+                if (sending) {
+                    return;
+                }
+                sending = true;
+                next = queue.pollFirst();
+            }
+        }
+        if (slow) {
+            disconnect(StatusCode.POLICY_VIOLATION, "Too slow to keep up with the game");
+            return;
+        }
+        write(next);
+    }
+
+    /**
+     * @return how many messages are waiting behind the one being written
+     */
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    private boolean makeRoom() {
+        if (policy != OverflowPolicy.DROP_OLDEST_LOAD_GAME) {
+            return false;
+        }
+        int dropped = removeLoadGames(true);
+        counters.dropped.add(dropped);
+        return dropped > 0;
+    }
+
+    private int removeLoadGames(boolean oldestOnly) {
+        int removed = 0;
+        Iterator<Outbound> queued = queue.iterator();
+        while (queued.hasNext()) {
+            if (queued.next().type() == ServerMessage.ServerMessageType.LOAD_GAME) {
+                queued.remove();
+                removed++;
+                if (oldestOnly) {
+                    break;
+                }
+            }
+        }
+        return removed;
+    }
+
+    private void write(Outbound message) {
+        session.getRemote().sendString(message.payload(), new WriteCallback() {
+            @Override
+            public void writeFailed(Throwable x) {
+                synchronized (Connection.this) {
+                    if (closed) {
+                        return;
+                    }
+                    counters.writeFailures.increment();
+                    markClosed();
+                }
+                disconnect(StatusCode.SERVER_ERROR, "Failed to send to the client");
+            }
+
+            @Override
+            public void writeSuccess() {
+                Outbound next;
+                synchronized (Connection.this) {
+                    next = closed ? null : queue.pollFirst();
+                    if (next == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                write(next);
+            }
+        });
+    }
+
+    // Called holding the lock, nothing more is sent once it's closed
+    private void markClosed() {
+        closed = true;
+        sending = false;
+        queue.clear();
     }
 
-    public void send(String msg) throws IOException {
-        session.getRemote().sendString(msg);
+    // A client that can't be sent to is closed and taken out of its game, so it isn't
+    // left in the room silently missing every message after this one
+    private void disconnect(int statusCode, String reason) {
+        manager.drop(this);
+        if (session.isOpen()) {
+            session.close(statusCode, reason);
+        }
     }
 }
@@ -2,29 +2,126 @@ package server.websocket;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.websocket.api.Session;
 import websocket.messages.ServerMessage;
 
+/**
+ * The open websocket sessions, keyed by session so one user can be in several games at
+ * once. Each game's room is indexed as well, so a broadcast only visits the sessions in
+ * that game instead of every session on the server.
+ * <p>
+ * Sends don't wait for the client, each connection queues up to queueCapacity messages
+ * and handles overflow according to its {@link Connection.OverflowPolicy}.
+ */
 public class ConnectionManager {
-    public final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
+    /**
+     * A snapshot of the outbound queues, queued is the total across every connection right
+     * now and maxQueueDepth the deepest any one queue has been.
+     */
+    public record Stats(int connections, int rooms, int queued, long maxQueueDepth, long dropped, long coalesced,
+                        long slowDisconnects, long writeFailures) {}
 
+    // Shared by every connection, which count into them as they send
+    static class Counters {
+        final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+        final LongAdder dropped = new LongAdder();
+        final LongAdder coalesced = new LongAdder();
+        final LongAdder slowDisconnects = new LongAdder();
+        final LongAdder writeFailures = new LongAdder();
+    }
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    public final ConcurrentHashMap<Session, Connection> connections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Set<Connection>> rooms = new ConcurrentHashMap<>();
+    private final int queueCapacity;
+    private final Connection.OverflowPolicy policy;
+    final Counters counters = new Counters();
+
+    public ConnectionManager() {
+        this(DEFAULT_QUEUE_CAPACITY, Connection.OverflowPolicy.COALESCE);
+    }
+
+    /**
+     * @param queueCapacity how many messages may wait for a client that's behind
+     * @param policy        what to do with a message for a client whose queue is full
+     */
+    public ConnectionManager(int queueCapacity, Connection.OverflowPolicy policy) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1");
+        }
+        this.queueCapacity = queueCapacity;
+        this.policy = policy;
+    }
+
+    /**
+     * Puts the session in the game's room, moving it out of any game it was in before.
+     * A session keeps its queue when it moves so nothing already sent to it is reordered.
+     */
     public void add(String username, int gameID, Session session) {
-        var connection = new Connection(username, gameID, session);
-        connections.put(username, connection);
+        var connection = connections.get(session);
+        if (connection == null) {
+            connection = new Connection(username, gameID, session, queueCapacity, policy, this);
+            connections.put(session, connection);
+        } else {
+            leaveRoom(connection);
+            connection.username = username;
+            connection.gameID = gameID;
+        }
+        var joining = connection;
+        rooms.compute(gameID, (id, room) -> {
+            if (room == null) {
+                room = ConcurrentHashMap.newKeySet();
+            }
+            room.add(joining);
+            return room;
+        });
+    }
+
+    public void remove(Session session) {
+        var connection = connections.remove(session);
+        if (connection != null) {
+            leaveRoom(connection);
+        }
     }
 
-    public void remove(String username) {
-        connections.remove(username);
+    /**
+     * Sends the message to one session, through its queue if it's connected to a game so
+     * it stays in order with broadcasts.
+     */
+    public void send(Session session, ServerMessage message) throws IOException {
+        var connection = connections.get(session);
+        if (connection == null) {
+            session.getRemote().sendString(message.toString());
+        } else {
+            connection.send(message.getServerMessageType(), message.toString());
+        }
     }
 
-    public void broadcast(String excludedUsername, int gameID, ServerMessage message) throws IOException {
+    /**
+     * Queues the message for every session in the game except the excluded one, dropping
+     * sessions that have closed along the way. The message is serialized once, the first
+     * time there's someone to send it to, and that text goes to every recipient.
+     */
+    public void broadcast(Session excludedSession, int gameID, ServerMessage message) {
+        var room = rooms.get(gameID);
+        if (room == null) {
+            return;
+        }
+        String payload = null;
         var removeList = new ArrayList<Connection>();
-        for (var c : connections.values()) {
+        for (var c : room) {
             if (c.session.isOpen()) {
-                if (!c.username.equals(excludedUsername) && c.gameID == gameID) {
-                    c.send(message.toString());
+                if (c.session != excludedSession) {
+                    if (payload == null) {
+                        payload = message.toString();
+                    }
+                    c.send(message.getServerMessageType(), payload);
                 }
             } else {
                 removeList.add(c);
@@ -32,7 +129,41 @@ public class ConnectionManager {
         }
 
         for (var c : removeList) {
-            connections.remove(c.username);
+            connections.remove(c.session, c);
+            leaveRoom(c);
         }
     }
+
+    /**
+     * @return how many sessions are in the game
+     */
+    public int roomSize(int gameID) {
+        var room = rooms.get(gameID);
+        return room == null ? 0 : room.size();
+    }
+
+    public Stats stats() {
+        int queued = 0;
+        for (var connection : connections.values()) {
+            queued += connection.queued();
+        }
+        return new Stats(connections.size(), rooms.size(), queued, counters.maxDepth.get(), counters.dropped.sum(),
+                counters.coalesced.sum(), counters.slowDisconnects.sum(), counters.writeFailures.sum());
+    }
+
+    // Takes a connection that can no longer be sent to out of its room, unless its session
+    // has since been given a new one
+    void drop(Connection connection) {
+        if (connections.remove(connection.session, connection)) {
+            leaveRoom(connection);
+        }
+    }
+
+    // Empty rooms are dropped so finished games don't pile up in the index
+    private void leaveRoom(Connection connection) {
+        rooms.computeIfPresent(connection.gameID, (id, room) -> {
+            room.remove(connection);
+            return room.isEmpty() ? null : room;
+        });
+    }
 }
@@ -3,15 +3,16 @@ package server.websocket;
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.InvalidMoveException;
-import com.google.gson.Gson;
 import dataaccess.AuthAccess;
 import dataaccess.GameAccess;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import serialization.Serializer;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
 import websocket.messages.Error;
@@ -23,21 +24,34 @@ import java.io.IOException;
 
 @WebSocket
 public class WebSocketHandler {
-    private final ConnectionManager connections = new ConnectionManager();
+    // Commands for one game are handled one at a time, so two moves can't both be made on
+    // the same loaded board. Games share this many locks rather than each having one.
+    private static final int GAME_LOCKS = 64;
+
+    private final Object[] gameLocks = new Object[GAME_LOCKS];
+    private final ConnectionManager connections;
     private final AuthAccess authAccess;
     private final GameAccess gameAccess;
 
     public WebSocketHandler(AuthAccess authAccess, GameAccess gameAccess) {
+        this(authAccess, gameAccess, new ConnectionManager());
+    }
+
+    public WebSocketHandler(AuthAccess authAccess, GameAccess gameAccess, ConnectionManager connections) {
         this.authAccess = authAccess;
         this.gameAccess = gameAccess;
+        this.connections = connections;
+        for (int i = 0; i < GAME_LOCKS; i++) {
+            gameLocks[i] = new Object();
+        }
     }
 
     @OnWebSocketMessage
     public void onMessage(Session session, String message) throws IOException {
-        UserGameCommand command = new Gson().fromJson(message, UserGameCommand.class);
+        UserGameCommand command = Serializer.GSON.fromJson(message, UserGameCommand.class);
         ChessMove chessMove = null;
         if (command.getCommandType() == UserGameCommand.CommandType.MAKE_MOVE) {
-            MakeMoveCommand moveCommand = new Gson().fromJson(message, MakeMoveCommand.class);
+            MakeMoveCommand moveCommand = Serializer.GSON.fromJson(message, MakeMoveCommand.class);
             chessMove = moveCommand.getMove();
         }
         int gameID = command.getGameID();
@@ -52,25 +66,31 @@ public class WebSocketHandler {
         }
         String username = authData.username();
 
-        GameData game;
-        try {
-            game = gameAccess.get(gameID);
-        } catch (ResponseException e) {
-            sendError(session, e.getMessage());
-            return;
-        }
+        synchronized (gameLocks[Math.floorMod(gameID, GAME_LOCKS)]) {
+            GameData game;
+            try {
+                game = gameAccess.get(gameID);
+            } catch (ResponseException e) {
+                sendError(session, e.getMessage());
+                return;
+            }
 
-        switch (command.getCommandType()) {
-            case CONNECT -> this.connect(username, game, session);
-            case MAKE_MOVE -> this.makeMove(username, game, chessMove, session);
-            case LEAVE -> this.leave(username, game, session);
-            case RESIGN -> this.resign(username, game, session);
+            switch (command.getCommandType()) {
+                case CONNECT -> this.connect(username, game, session);
+                case MAKE_MOVE -> this.makeMove(username, game, chessMove, session);
+                case LEAVE -> this.leave(username, game, session);
+                case RESIGN -> this.resign(username, game, session);
+            }
         }
     }
 
+    @OnWebSocketClose
+    public void onClose(Session session, int statusCode, String reason) {
+        connections.remove(session);
+    }
+
     private void sendError(Session session, String message) throws IOException {
-        Error error = new Error(message);
-        session.getRemote().sendString(error.toString());
+        connections.send(session, new Error(message));
     }
 
     private void leave(String username, GameData game, Session session) throws IOException {
@@ -83,9 +103,9 @@ public class WebSocketHandler {
                 return;
             }
         }
-        connections.remove(username);
+        connections.remove(session);
         Notification notification = new Notification(String.format("%s left the game", username));
-        connections.broadcast(username, game.gameID(), notification);
+        connections.broadcast(session, game.gameID(), notification);
     }
 
     private void resign(String username, GameData game, Session session) throws IOException {
@@ -111,8 +131,7 @@ public class WebSocketHandler {
 
     private void connect(String username, GameData game, Session session) throws IOException {
         connections.add(username, game.gameID(), session);
-        LoadGame loadGame = new LoadGame(game);
-        session.getRemote().sendString(loadGame.toString());
+        connections.send(session, new LoadGame(game));
 
         String end;
         if (username.equals(game.whiteUsername())) {
@@ -124,7 +143,7 @@ public class WebSocketHandler {
         }
         String message = String.format("%s connected to the game as %s", username, end);
         Notification notification = new Notification(message);
-        connections.broadcast(username, game.gameID(), notification);
+        connections.broadcast(session, game.gameID(), notification);
     }
 
     private void makeMove(String username, GameData game, ChessMove move, Session session) throws IOException {
@@ -155,7 +174,7 @@ public class WebSocketHandler {
             return;
         }
         try {
-            this.gameAccess.edit(game);
+            this.gameAccess.addMove(game, move);
         } catch (ResponseException e) {
             this.sendError(session, e.getMessage());
             return;
@@ -163,26 +182,23 @@ public class WebSocketHandler {
         connections.broadcast(null, game.gameID(), new LoadGame(game));
 
         Notification moveNotification = new Notification(String.format("%s made the move %s", username, move));
-        connections.broadcast(username, game.gameID(), moveNotification);
+        connections.broadcast(session, game.gameID(), moveNotification);
 
-        // Check etc. notifications
-        ChessGame.TeamColor otherColor;
+        // Check etc. notifications, the other team is now the one to move
         String otherUsername;
         if (game.whiteUsername().equals(username)) {
-            otherColor = ChessGame.TeamColor.BLACK;
             otherUsername = game.blackUsername();
         } else {
-            otherColor = ChessGame.TeamColor.WHITE;
             otherUsername = game.whiteUsername();
         }
-        String message = null;
-        if (game.game().isInCheckmate(otherColor)) {
-            message = "is in checkmate";
-        } else if (game.game().isInStalemate(otherColor)) {
-            message = "is in stalemate";
-        } else if (game.game().isInCheck(otherColor)) {
-            message = "is in check";
-        }
+        String message = switch (game.game().getGameStatus()) {
+            case CHECKMATE -> String.format("%s is in checkmate", otherUsername);
+            case STALEMATE -> String.format("%s is in stalemate", otherUsername);
+            case CHECK -> String.format("%s is in check", otherUsername);
+            case THREEFOLD_REPETITION -> "Draw by threefold repetition";
+            case FIFTY_MOVE_RULE -> "Draw by the fifty-move rule";
+            default -> null;
+        };
         if (message != null) {
             // End game
             game.game().setTeamTurn(ChessGame.TeamColor.ENDED);
@@ -193,7 +209,7 @@ public class WebSocketHandler {
                 return;
             }
 
-            Notification status = new Notification(String.format("%s %s", otherUsername, message));
+            Notification status = new Notification(message);
             connections.broadcast(null, game.gameID(), status);
         }
     }
@@ -5,11 +5,15 @@ import dataaccess.*;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import record.*;
 
 import java.util.Collection;
+import java.util.List;
 
 public class GameService {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 100;
     private int nextID = 1;
     private final AuthAccess authAccess;
     private final GameAccess gameAccess;
@@ -34,6 +38,26 @@ public class GameService {
         return new ListGamesResponse(games);
     }
 
+    /**
+     * Lists one page of games matching the filter, starting after the cursor (0 for the
+     * first page). Pages hold at most MAX_PAGE_SIZE games whatever the limit asked for.
+     */
+    public ListGameSummariesResponse listGameSummaries(String authToken, GameFilter filter, int after, int limit) throws ResponseException {
+        authAccess.get(authToken);
+        if (limit < 1 || after < 0) {
+            throw ResponseException.badRequest();
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        // One extra tells whether there's another page without counting them all
+        List<GameSummary> games = gameAccess.getSummaries(filter, after, pageSize + 1);
+        Integer next = null;
+        if (games.size() > pageSize) {
+            games = games.subList(0, pageSize);
+            next = games.getLast().gameID();
+        }
+        return new ListGameSummariesResponse(games, next);
+    }
+
     public void joinGame(JoinGameRequest data, String authToken) throws ResponseException {
         AuthData auth = authAccess.get(authToken);
         gameAccess.addPlayer(data.gameID(), data.playerColor(), auth.username());
@@ -0,0 +1,90 @@
+package dataaccess;
+
+import exception.ResponseException;
+import model.AuthData;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuthAccessCachedTests {
+    /**
+     * Counts the lookups that get past the cache
+     */
+    private static class CountingAccess extends AuthAccessMemory {
+        int gets;
+
+        @Override
+        public AuthData get(String authToken) throws ResponseException {
+            gets++;
+            return super.get(authToken);
+        }
+    }
+
+    private final CountingAccess stored = new CountingAccess();
+
+    @Test
+    public void repeatedLookupsAreCached() throws ResponseException {
+        AuthAccessCached auths = new AuthAccessCached(stored, 60_000, 60_000, 10);
+        stored.create(new AuthData("token", "user"));
+        for (int i = 0; i < 5; i++) {
+            assertEquals("user", auths.get("token").username());
+        }
+        assertEquals(1, stored.gets);
+        assertEquals(4, auths.stats().hits());
+        assertEquals(0.8, auths.stats().hitRate());
+    }
+
+    @Test
+    public void unknownTokensAreCached() throws ResponseException {
+        AuthAccessCached auths = new AuthAccessCached(stored, 60_000, 60_000, 10);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ResponseException.class, () -> auths.get("missing"));
+        }
+        assertEquals(1, stored.gets);
+        assertEquals(2, auths.stats().negativeHits());
+
+        // Creating the token through the cache replaces what it remembered
+        auths.create(new AuthData("missing", "user"));
+        assertEquals("user", auths.get("missing").username());
+        assertEquals(1, stored.gets);
+    }
+
+    @Test
+    public void entriesExpire() throws Exception {
+        AuthAccessCached auths = new AuthAccessCached(stored, 10, 10, 10);
+        stored.create(new AuthData("token", "user"));
+        auths.get("token");
+        Thread.sleep(20);
+        auths.get("token");
+        assertEquals(2, stored.gets);
+    }
+
+    @Test
+    public void deleteInvalidates() throws ResponseException {
+        AuthAccessCached auths = new AuthAccessCached(stored, 60_000, 60_000, 10);
+        auths.create(new AuthData("first", "user"));
+        auths.create(new AuthData("second", "user"));
+        auths.get("first");
+        auths.get("second");
+
+        auths.delete("first");
+        assertThrows(ResponseException.class, () -> auths.get("first"));
+        assertEquals("user", auths.get("second").username());
+
+        auths.deleteAll();
+        assertThrows(ResponseException.class, () -> auths.get("second"));
+        // Only the lookup of the deleted token since the clear
+        assertEquals(1, auths.stats().size());
+    }
+
+    @Test
+    public void sizeIsBounded() throws ResponseException {
+        AuthAccessCached auths = new AuthAccessCached(stored, 60_000, 60_000, 2);
+        for (int i = 0; i < 5; i++) {
+            auths.create(new AuthData("token" + i, "user"));
+        }
+        assertEquals(2, auths.stats().size());
+        auths.get("token0");
+        assertEquals(1, stored.gets);
+    }
+}
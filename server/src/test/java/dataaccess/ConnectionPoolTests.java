@@ -0,0 +1,212 @@
+package dataaccess;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTests {
+    /**
+     * Stands in for a MySQL connection, counting how often it's checked and closed
+     */
+    private static class FakeConnection {
+        boolean valid = true;
+        boolean closed;
+        int validations;
+        int prepares;
+
+        Connection connection() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "isClosed" -> closed;
+                        case "isValid" -> {
+                            validations++;
+                            yield valid;
+                        }
+                        case "getAutoCommit" -> true;
+                        case "prepareStatement" -> {
+                            prepares++;
+                            yield Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                    new Class<?>[]{PreparedStatement.class}, (statement, call, callArgs) -> call.getName().equals("isClosed") ? false : null);
+                        }
+                        default -> null;
+                    });
+        }
+    }
+
+    private final List<FakeConnection> opened = new ArrayList<>();
+
+    private ConnectionPool pool(int size, long timeout, long idleTimeout, long validation) {
+        return pool(size, timeout, idleTimeout, validation, 0);
+    }
+
+    private ConnectionPool pool(int size, long timeout, long idleTimeout, long validation, int statements) {
+        return new ConnectionPool(() -> {
+            FakeConnection fake = new FakeConnection();
+            opened.add(fake);
+            return fake.connection();
+        }, size, timeout, idleTimeout, validation, statements);
+    }
+
+    @Test
+    public void reusesReturnedConnections() throws SQLException {
+        ConnectionPool pool = pool(2, 100, 60_000, 60_000);
+        for (int i = 0; i < 5; i++) {
+            try (var conn = pool.getConnection()) {
+                assertFalse(conn.isClosed());
+            }
+        }
+        assertEquals(1, opened.size());
+        assertFalse(opened.getFirst().closed);
+
+        ConnectionPool.Stats stats = pool.stats();
+        assertEquals(5, stats.borrows());
+        assertEquals(1, stats.created());
+        assertEquals(1, stats.idle());
+    }
+
+    @Test
+    public void closedLeaseIsUnusable() throws SQLException {
+        ConnectionPool pool = pool(1, 100, 60_000, 60_000);
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.close();
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, () -> conn.prepareStatement("SELECT 1"));
+        assertEquals(1, pool.stats().idle());
+    }
+
+    @Test
+    public void timesOutWhenExhausted() throws SQLException {
+        ConnectionPool pool = pool(1, 50, 60_000, 60_000);
+        try (var ignored = pool.getConnection()) {
+            assertThrows(SQLException.class, pool::getConnection);
+        }
+        assertEquals(1, pool.stats().timeouts());
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    public void waitsForReturnedConnection() throws Exception {
+        ConnectionPool pool = pool(1, 5_000, 60_000, 60_000);
+        Connection held = pool.getConnection();
+        CountDownLatch borrowed = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try (var ignored = pool.getConnection()) {
+                borrowed.countDown();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        waiter.start();
+        // Only time the wait once the waiter is actually blocked on the pool
+        while (waiter.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(20);
+        assertEquals(1, borrowed.getCount());
+        held.close();
+        assertTrue(borrowed.await(5, TimeUnit.SECONDS));
+        waiter.join();
+
+        ConnectionPool.Stats stats = pool.stats();
+        assertEquals(1, stats.created());
+        assertTrue(stats.maxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void evictsIdleConnections() throws Exception {
+        ConnectionPool pool = pool(2, 100, 10, 60_000);
+        pool.getConnection().close();
+        Thread.sleep(20);
+        pool.getConnection().close();
+
+        assertEquals(2, opened.size());
+        assertTrue(opened.getFirst().closed);
+        assertEquals(1, pool.stats().evicted());
+        assertEquals(1, pool.stats().open());
+    }
+
+    @Test
+    public void replacesInvalidConnections() throws Exception {
+        ConnectionPool pool = pool(1, 100, 60_000, 0);
+        pool.getConnection().close();
+        opened.getFirst().valid = false;
+        Thread.sleep(1);
+        pool.getConnection().close();
+
+        assertEquals(2, opened.size());
+        assertEquals(1, opened.getFirst().validations);
+        assertTrue(opened.getFirst().closed);
+        assertEquals(1, pool.stats().open());
+    }
+
+    @Test
+    public void failedOpenFreesSlot() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(() -> {
+            throw new SQLException("refused");
+        }, 1, 100, 60_000, 60_000, 0);
+        assertThrows(SQLException.class, pool::getConnection);
+        assertThrows(SQLException.class, pool::getConnection);
+        assertEquals(0, pool.stats().open());
+        assertEquals(0, pool.stats().timeouts());
+    }
+
+    @Test
+    public void cachesPreparedStatements() throws SQLException {
+        ConnectionPool pool = pool(1, 100, 60_000, 60_000, 1);
+        for (int i = 0; i < 3; i++) {
+            try (var conn = pool.getConnection(); var ps = conn.prepareStatement("SELECT 1")) {
+                assertFalse(ps.isClosed());
+            }
+        }
+        assertEquals(1, opened.getFirst().prepares);
+
+        try (var conn = pool.getConnection();
+             var outer = conn.prepareStatement("SELECT 1");
+             var inner = conn.prepareStatement("SELECT 1")) {
+            assertNotSame(outer, inner);
+            // Pushes SELECT 1 out of the single slot cache
+            conn.prepareStatement("SELECT 2").close();
+        }
+        try (var conn = pool.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement("SELECT 2");
+            ps.close();
+            assertThrows(SQLException.class, ps::executeQuery);
+        }
+        assertEquals(3, opened.getFirst().prepares);
+
+        ConnectionPool.Stats stats = pool.stats();
+        assertEquals(4, stats.statementHits());
+        assertEquals(3, stats.statementMisses());
+        assertEquals(4 / 7.0, stats.statementHitRate());
+    }
+
+    @Test
+    public void statementsGiveTheLease() throws SQLException {
+        ConnectionPool pool = pool(1, 100, 60_000, 60_000, 1);
+        try (var conn = pool.getConnection();
+             var cached = conn.prepareStatement("SELECT 1");
+             var nested = conn.prepareStatement("SELECT 1")) {
+            assertSame(conn, cached.getConnection());
+            assertSame(conn, nested.getConnection());
+            // Closing it through the statement returns it to the pool
+            cached.getConnection().close();
+            assertTrue(conn.isClosed());
+        }
+        assertFalse(opened.getFirst().closed);
+        assertEquals(1, pool.stats().idle());
+    }
+}
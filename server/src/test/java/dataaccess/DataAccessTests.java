@@ -1,13 +1,21 @@
 package dataaccess;
 
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import model.UserData;
 import org.junit.jupiter.api.Test;
+import record.GameFilter;
 import service.DatabaseService;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -249,6 +257,47 @@ public class DataAccessTests {
         assertEquals(2, games.size());
     }
 
+    @Test
+    public void getSummariesPositive() throws ResponseException, InvalidMoveException {
+        Accesses accesses = getServices();
+        GameData game = accesses.game().create(new GameData(0, null, null, "game1", new ChessGame()));
+        accesses.game().create(new GameData(1, null, null, "game2", new ChessGame()));
+        ChessMove move = new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null);
+        game.game().makeMove(move);
+        accesses.game().addMove(game, move);
+        game.game().setTeamTurn(ChessGame.TeamColor.ENDED);
+        accesses.game().edit(game);
+
+        var summaries = accesses.game().getSummaries(GameFilter.ALL, -1, 10);
+
+        assertEquals(2, summaries.size());
+        assertEquals("game1", summaries.get(0).gameName());
+        assertEquals(1, summaries.get(0).moveCount());
+        assertEquals(ChessGame.GameStatus.ENDED, summaries.get(0).status());
+        assertEquals(0, summaries.get(1).moveCount());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, summaries.get(1).status());
+    }
+
+    @Test
+    public void getSummariesFiltered() throws ResponseException {
+        Accesses accesses = getServices();
+        for (int id = 1; id <= 5; id++) {
+            accesses.game().create(new GameData(id, null, null, "game" + id, new ChessGame()));
+        }
+        accesses.game().addPlayer(2, "WHITE", "player");
+        accesses.game().addPlayer(4, "BLACK", "player");
+        accesses.game().addPlayer(4, "WHITE", "other");
+
+        var page = accesses.game().getSummaries(GameFilter.ALL, 2, 2);
+        assertEquals(List.of(3, 4), page.stream().map(GameSummary::gameID).toList());
+
+        var played = accesses.game().getSummaries(new GameFilter(false, null, "player"), 0, 10);
+        assertEquals(List.of(2, 4), played.stream().map(GameSummary::gameID).toList());
+
+        var open = accesses.game().getSummaries(new GameFilter(true, ChessGame.GameStatus.IN_PROGRESS, null), 0, 10);
+        assertEquals(List.of(1, 2, 3, 5), open.stream().map(GameSummary::gameID).toList());
+    }
+
     @Test
     public void addPlayerPositive() throws ResponseException {
         Accesses accesses = getServices();
@@ -284,6 +333,67 @@ public class DataAccessTests {
         });
     }
 
+    @Test
+    public void addMovePositive() throws ResponseException, InvalidMoveException {
+        Accesses accesses = getServices();
+        GameData createdGame = accesses.game().create(new GameData(0, null, null, "testGame", new ChessGame()));
+
+        // Knights out and back, enough moves to pass a snapshot and log some after it
+        ChessMove[] moves = {
+                new ChessMove(ChessPosition.of(1, 2), ChessPosition.of(3, 3), null),
+                new ChessMove(ChessPosition.of(8, 2), ChessPosition.of(6, 3), null),
+                new ChessMove(ChessPosition.of(3, 3), ChessPosition.of(1, 2), null),
+                new ChessMove(ChessPosition.of(6, 3), ChessPosition.of(8, 2), null),
+        };
+        for (int i = 0; i < 21; i++) {
+            createdGame.game().makeMove(moves[i % moves.length]);
+            accesses.game().addMove(createdGame, moves[i % moves.length]);
+        }
+
+        GameData result = accesses.game().get(createdGame.gameID());
+        assertEquals(createdGame.game(), result.game());
+        assertEquals(21, result.game().getPly());
+        assertEquals(createdGame.game().toFen(), accesses.game().getAll().iterator().next().game().toFen());
+    }
+
+    @Test
+    public void addMovesPositive() throws ResponseException, InvalidMoveException {
+        Accesses accesses = getServices();
+        GameData createdGame = accesses.game().create(new GameData(0, null, null, "testGame", new ChessGame()));
+
+        // One batch that passes a snapshot ply
+        ChessMove[] moves = {
+                new ChessMove(ChessPosition.of(1, 2), ChessPosition.of(3, 3), null),
+                new ChessMove(ChessPosition.of(8, 2), ChessPosition.of(6, 3), null),
+                new ChessMove(ChessPosition.of(3, 3), ChessPosition.of(1, 2), null),
+                new ChessMove(ChessPosition.of(6, 3), ChessPosition.of(8, 2), null),
+        };
+        List<ChessMove> batch = new ArrayList<>();
+        for (int i = 0; i < 18; i++) {
+            createdGame.game().makeMove(moves[i % moves.length]);
+            batch.add(moves[i % moves.length]);
+        }
+        accesses.game().addMoves(createdGame, batch);
+
+        GameData result = accesses.game().get(createdGame.gameID());
+        assertEquals(createdGame.game(), result.game());
+        assertEquals(18, result.game().getPly());
+    }
+
+    @Test
+    public void addMoveNegative() throws ResponseException, InvalidMoveException {
+        Accesses accesses = getServices();
+        GameData createdGame = accesses.game().create(new GameData(0, null, null, "testGame", new ChessGame()));
+        ChessMove move = new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null);
+        createdGame.game().makeMove(move);
+        accesses.game().addMove(createdGame, move);
+
+        // The same ply can't be logged twice
+        assertThrows(ResponseException.class, () -> {
+            accesses.game().addMove(createdGame, move);
+        });
+    }
+
     @Test
     public void deleteAllGamesPositive() throws ResponseException {
         Accesses accesses = getServices();
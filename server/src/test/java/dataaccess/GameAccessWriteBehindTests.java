@@ -0,0 +1,270 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import exception.ResponseException;
+import model.GameData;
+import model.GameSummary;
+import record.GameFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameAccessWriteBehindTests {
+    /**
+     * Remembers the writes that reach it, optionally failing them or just one game's
+     */
+    private static class RecordingAccess extends GameAccessMemory {
+        final List<String> writes = new ArrayList<>();
+        int gets;
+        boolean failing;
+        int failingGame = -1;
+
+        @Override
+        public GameData get(int gameID) throws ResponseException {
+            gets++;
+            return super.get(gameID);
+        }
+
+        @Override
+        public void edit(GameData data) throws ResponseException {
+            record(data, "edit " + data.game().getTeamTurn());
+            super.edit(data);
+        }
+
+        @Override
+        public void addMoves(GameData data, List<ChessMove> moves) throws ResponseException {
+            StringBuilder write = new StringBuilder(data.gameID() == 1 ? "moves" : "game " + data.gameID() + " moves");
+            for (ChessMove move : moves) {
+                write.append(' ').append(move.toNotation());
+            }
+            record(data, write.toString());
+            super.addMoves(data, moves);
+        }
+
+        private void record(GameData data, String write) throws ResponseException {
+            if (failing || data.gameID() == failingGame) {
+                throw new ResponseException(500, "Database down");
+            }
+            writes.add(write);
+        }
+    }
+
+    private static final ChessMove E4 = new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null);
+    private static final ChessMove E5 = new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null);
+
+    private final RecordingAccess stored = new RecordingAccess();
+
+    private GameAccessWriteBehind writeBehind(int maxPending) throws ResponseException {
+        return writeBehind(maxPending, maxPending);
+    }
+
+    private GameAccessWriteBehind writeBehind(int maxPending, int maxPendingPerGame) throws ResponseException {
+        stored.create(new GameData(1, "white", "black", "game", new ChessGame()));
+        // Long enough that only the test flushes
+        return new GameAccessWriteBehind(stored, 60_000, maxPending, maxPendingPerGame, 10);
+    }
+
+    private static void play(GameAccess games, ChessMove move) throws ResponseException, InvalidMoveException {
+        play(games, 1, move);
+    }
+
+    private static void play(GameAccess games, int gameID, ChessMove move) throws ResponseException, InvalidMoveException {
+        GameData game = games.get(gameID);
+        game.game().makeMove(move);
+        games.addMove(game, move);
+    }
+
+    @Test
+    public void readsFromMemory() throws ResponseException, InvalidMoveException {
+        GameAccessWriteBehind games = writeBehind(100);
+        play(games, E4);
+        play(games, E5);
+        assertEquals(1, stored.gets);
+        assertTrue(stored.writes.isEmpty());
+        assertEquals(ChessGame.TeamColor.WHITE, games.get(1).game().getTeamTurn());
+        assertEquals(ChessGame.TeamColor.WHITE, games.getAll().iterator().next().game().getTeamTurn());
+        assertEquals(2, games.stats().queued());
+
+        games.flush();
+        // Moves in a row reach the database together
+        assertEquals(List.of("moves e2e4 e7e5"), stored.writes);
+        assertEquals(0, games.stats().queued());
+        assertEquals(1, games.stats().flushes());
+        assertEquals(1, stored.gets);
+    }
+
+    @Test
+    public void summariesShowQueuedMoves() throws ResponseException, InvalidMoveException {
+        GameAccessWriteBehind games = writeBehind(100);
+        play(games, E4);
+        GameSummary summary = games.getSummaries(GameFilter.ALL, 0, 10).iterator().next();
+        assertEquals(1, summary.moveCount());
+        assertEquals(ChessGame.GameStatus.IN_PROGRESS, summary.status());
+
+        GameData ended = games.get(1);
+        ended.game().setTeamTurn(ChessGame.TeamColor.ENDED);
+        games.edit(ended);
+        games.flush();
+        summary = games.getSummaries(GameFilter.ALL, 0, 10).iterator().next();
+        assertEquals(ChessGame.GameStatus.ENDED, summary.status());
+        assertEquals("white", summary.whiteUsername());
+    }
+
+    @Test
+    public void callersGetCopies() throws ResponseException, InvalidMoveException {
+        GameAccessWriteBehind games = writeBehind(100);
+        games.get(1).game().makeMove(E4);
+        assertEquals(ChessGame.TeamColor.WHITE, games.get(1).game().getTeamTurn());
+    }
+
+    @Test
+    public void flushesWhenFull() throws ResponseException, InvalidMoveException {
+        GameAccessWriteBehind games = writeBehind(2);
+        play(games, E4);
+        assertTrue(stored.writes.isEmpty());
+        play(games, E5);
+        assertEquals(List.of("moves e2e4 e7e5"), stored.writes);
+    }
+
+    @Test
+    public void retriesFailedWrites() throws ResponseException, InvalidMoveException {
+        GameAccessWriteBehind games = writeBehind(100);
+        play(games, E4);
+        stored.failing = true;
+        assertThrows(ResponseException.class, games::flush);
+        assertEquals(1, games.stats().queued());
+        // Still served from memory while it can't be written
+        assertEquals(ChessGame.TeamColor.BLACK, games.get(1).game().getTeamTurn());
+
+        stored.failing = false;
+        games.close();
+        assertEquals(List.of("moves e2e4"), stored.writes);
+        assertEquals(1, games.stats().failures());
+    }
+
+    @Test
+    public void neverDropsWrites() throws ResponseException, InvalidMoveException {
+        GameAccessWriteBehind games = writeBehind(100);
+        play(games, E4);
+        GameData ended = games.get(1);
+        ended.game().setTeamTurn(ChessGame.TeamColor.ENDED);
+        games.edit(ended);
+
+        stored.failing = true;
+        for (int i = 0; i < 5; i++) {
+            assertThrows(ResponseException.class, games::flush);
+        }
+        assertEquals(2, games.stats().queued());
+        stored.failing = false;
+        games.flush();
+
+        assertEquals(List.of("moves e2e4", "edit ENDED"), stored.writes);
+        assertEquals(0, games.stats().queued());
+        assertEquals(5, games.stats().failures());
+    }
+
+    @Test
+    public void rejectsWritesWhenFullAndFailing() throws ResponseException, InvalidMoveException {
+        GameAccessWriteBehind games = writeBehind(2);
+        stored.failing = true;
+        play(games, E4);
+        // Filling the queue tries a flush, which fails, but the queued move isn't an error
+        assertDoesNotThrow(() -> play(games, E5));
+        assertEquals(2, games.stats().queued());
+
+        ResponseException e = assertThrows(ResponseException.class,
+                () -> play(games, new ChessMove(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null)));
+        assertEquals(503, e.statusCode());
+        assertEquals(1, games.stats().rejected());
+        // The rejected move never reached memory either
+        assertEquals(ChessGame.TeamColor.WHITE, games.get(1).game().getTeamTurn());
+        assertEquals(2, games.stats().queued());
+
+        stored.failing = false;
+        games.flush();
+        assertEquals(List.of("moves e2e4 e7e5"), stored.writes);
+    }
+
+    @Test
+    public void failingGameDoesNotBlockOthers() throws ResponseException, InvalidMoveException {
+        stored.create(new GameData(2, "white", "black", "other", new ChessGame()));
+        GameAccessWriteBehind games = writeBehind(100, 1);
+        stored.failingGame = 2;
+        play(games, 2, E4);
+        play(games, 1, E4);
+        assertThrows(ResponseException.class, games::flush);
+        assertEquals(List.of("moves e2e4"), stored.writes);
+        assertEquals(1, games.stats().failingGames());
+
+        // The failing game is full, the other still takes moves
+        ResponseException e = assertThrows(ResponseException.class, () -> play(games, 2, E5));
+        assertEquals(503, e.statusCode());
+        assertDoesNotThrow(() -> play(games, 1, E5));
+
+        stored.failingGame = -1;
+        games.flush();
+        assertEquals(List.of("moves e2e4", "moves e7e5", "game 2 moves e2e4"), stored.writes);
+        assertEquals(0, games.stats().failingGames());
+    }
+
+    @Test
+    public void rejectsMovesOnStaleGames() throws ResponseException, InvalidMoveException {
+        GameAccessWriteBehind games = writeBehind(100);
+        GameData first = games.get(1);
+        GameData second = games.get(1);
+        first.game().makeMove(E4);
+        games.addMove(first, E4);
+
+        second.game().makeMove(E4);
+        ResponseException e = assertThrows(ResponseException.class, () -> games.addMove(second, E4));
+        assertEquals(409, e.statusCode());
+        assertEquals(1, games.stats().queued());
+    }
+
+    @Test
+    public void coalescesEdits() throws ResponseException, InvalidMoveException {
+        GameAccessWriteBehind games = writeBehind(100);
+        play(games, E4);
+        GameData game = games.get(1);
+        game.game().setTeamTurn(ChessGame.TeamColor.WHITE);
+        games.edit(game);
+        game.game().setTeamTurn(ChessGame.TeamColor.ENDED);
+        games.edit(game);
+
+        games.flush();
+        assertEquals(List.of("moves e2e4", "edit ENDED"), stored.writes);
+        assertEquals(3, games.stats().written());
+    }
+
+    @Test
+    public void joiningUpdatesQueuedWrites() throws ResponseException, InvalidMoveException {
+        stored.create(new GameData(2, null, "black", "open", new ChessGame()));
+        GameAccessWriteBehind games = writeBehind(100);
+        GameData game = games.get(2);
+        game.game().makeMove(E4);
+        games.addMove(game, E4);
+        games.addPlayer(2, "WHITE", "white");
+        assertEquals(1, games.stats().queued());
+        assertEquals("white", games.get(2).whiteUsername());
+
+        games.flush();
+        assertEquals("white", stored.get(2).whiteUsername());
+        assertEquals("white", games.get(2).whiteUsername());
+    }
+
+    @Test
+    public void playersAreWrittenThrough() throws ResponseException, InvalidMoveException {
+        stored.create(new GameData(2, null, null, "open", new ChessGame()));
+        GameAccessWriteBehind games = writeBehind(100);
+        games.get(2);
+        games.addPlayer(2, "WHITE", "white");
+        assertEquals("white", games.get(2).whiteUsername());
+        assertThrows(ResponseException.class, () -> games.addPlayer(2, "WHITE", "other"));
+    }
+}
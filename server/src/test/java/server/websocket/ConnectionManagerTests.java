@@ -0,0 +1,284 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Test;
+import model.GameData;
+import websocket.messages.LoadGame;
+import websocket.messages.Notification;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionManagerTests {
+    /**
+     * A session that records what's sent to it. A stalled one doesn't finish its writes
+     * until it's told to, like a client that stopped reading.
+     */
+    private static class FakeSession {
+        final List<String> sent = new ArrayList<>();
+        boolean open = true;
+        boolean stalled;
+        boolean failing;
+        int closeCode;
+        WriteCallback pending;
+        final Session session;
+
+        void resume() {
+            stalled = false;
+            while (pending != null) {
+                WriteCallback callback = pending;
+                pending = null;
+                callback.writeSuccess();
+            }
+        }
+
+        FakeSession() {
+            RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendString")) {
+                            sent.add((String) args[0]);
+                            if (args.length == 2) {
+                                WriteCallback callback = (WriteCallback) args[1];
+                                if (failing) {
+                                    callback.writeFailed(new IOException("Broken pipe"));
+                                } else if (stalled) {
+                                    pending = callback;
+                                } else {
+                                    callback.writeSuccess();
+                                }
+                            }
+                        }
+                        return null;
+                    });
+            session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                    new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "isOpen" -> open;
+                        case "getRemote" -> remote;
+                        case "close" -> {
+                            open = false;
+                            closeCode = args == null ? 0 : (int) args[0];
+                            yield null;
+                        }
+                        case "equals" -> proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        default -> null;
+                    });
+        }
+    }
+
+    /**
+     * Counts how many times it's serialized
+     */
+    private static class CountedNotification extends Notification {
+        transient int serialized;
+
+        CountedNotification(String message) {
+            super(message);
+        }
+
+        @Override
+        public String toString() {
+            serialized++;
+            return super.toString();
+        }
+    }
+
+    private final ConnectionManager connections = new ConnectionManager();
+
+    @Test
+    public void broadcastStaysInRoom() throws IOException {
+        FakeSession white = new FakeSession();
+        FakeSession black = new FakeSession();
+        FakeSession elsewhere = new FakeSession();
+        connections.add("white", 1, white.session);
+        connections.add("black", 1, black.session);
+        connections.add("other", 2, elsewhere.session);
+
+        connections.broadcast(white.session, 1, new Notification("hello"));
+        assertEquals(0, white.sent.size());
+        assertEquals(1, black.sent.size());
+        assertEquals(0, elsewhere.sent.size());
+    }
+
+    @Test
+    public void sameUserInTwoGames() throws IOException {
+        FakeSession first = new FakeSession();
+        FakeSession second = new FakeSession();
+        connections.add("user", 1, first.session);
+        connections.add("user", 2, second.session);
+
+        connections.broadcast(null, 1, new Notification("one"));
+        connections.broadcast(null, 2, new Notification("two"));
+        assertEquals(1, first.sent.size());
+        assertEquals(1, second.sent.size());
+        assertEquals(2, connections.connections.size());
+    }
+
+    @Test
+    public void reconnectMovesRooms() {
+        FakeSession session = new FakeSession();
+        connections.add("user", 1, session.session);
+        connections.add("user", 2, session.session);
+        assertEquals(0, connections.roomSize(1));
+        assertEquals(1, connections.roomSize(2));
+    }
+
+    @Test
+    public void removeEmptiesRoom() {
+        FakeSession session = new FakeSession();
+        connections.add("user", 1, session.session);
+        connections.remove(session.session);
+        assertEquals(0, connections.roomSize(1));
+        assertTrue(connections.connections.isEmpty());
+    }
+
+    @Test
+    public void serializedOncePerBroadcast() throws IOException {
+        CountedNotification message = new CountedNotification("hello");
+        List<FakeSession> spectators = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            FakeSession spectator = new FakeSession();
+            connections.add("spectator" + i, 1, spectator.session);
+            spectators.add(spectator);
+        }
+
+        connections.broadcast(null, 1, message);
+        assertEquals(1, message.serialized);
+        String expected = spectators.getFirst().sent.getFirst();
+        assertTrue(expected.contains("hello"));
+        for (FakeSession spectator : spectators) {
+            assertEquals(List.of(expected), spectator.sent);
+        }
+    }
+
+    @Test
+    public void nothingSerializedWithoutRecipients() throws IOException {
+        CountedNotification message = new CountedNotification("hello");
+        FakeSession mover = new FakeSession();
+        connections.add("mover", 1, mover.session);
+
+        connections.broadcast(mover.session, 1, message);
+        assertEquals(0, message.serialized);
+    }
+
+    @Test
+    public void closedSessionsDropped() throws IOException {
+        FakeSession open = new FakeSession();
+        FakeSession closed = new FakeSession();
+        connections.add("open", 1, open.session);
+        connections.add("closed", 1, closed.session);
+        closed.open = false;
+
+        connections.broadcast(null, 1, new Notification("hello"));
+        assertEquals(1, open.sent.size());
+        assertEquals(0, closed.sent.size());
+        assertEquals(1, connections.roomSize(1));
+        assertFalse(connections.connections.containsKey(closed.session));
+    }
+
+    @Test
+    public void slowClientDoesNotBlockOthers() {
+        FakeSession slow = new FakeSession();
+        FakeSession fast = new FakeSession();
+        connections.add("slow", 1, slow.session);
+        connections.add("fast", 1, fast.session);
+        slow.stalled = true;
+
+        for (int i = 0; i < 10; i++) {
+            connections.broadcast(null, 1, new Notification("move " + i));
+        }
+        assertEquals(10, fast.sent.size());
+        assertEquals(1, slow.sent.size());
+        assertEquals(9, connections.stats().queued());
+
+        slow.resume();
+        assertEquals(fast.sent, slow.sent);
+        assertEquals(0, connections.stats().queued());
+        assertEquals(9, connections.stats().maxQueueDepth());
+    }
+
+    @Test
+    public void coalesceKeepsNewestBoard() {
+        FakeSession slow = new FakeSession();
+        connections.add("slow", 1, slow.session);
+        slow.stalled = true;
+
+        connections.broadcast(null, 1, new Notification("first"));
+        for (int i = 0; i < 5; i++) {
+            connections.broadcast(null, 1, new LoadGame(new GameData(1, null, null, "game " + i, null)));
+        }
+        connections.broadcast(null, 1, new Notification("last"));
+        slow.resume();
+
+        assertEquals(3, slow.sent.size());
+        assertTrue(slow.sent.get(1).contains("game 4"));
+        assertEquals(4, connections.stats().coalesced());
+    }
+
+    @Test
+    public void dropOldestBoardWhenFull() {
+        ConnectionManager dropping = new ConnectionManager(2, Connection.OverflowPolicy.DROP_OLDEST_LOAD_GAME);
+        FakeSession slow = new FakeSession();
+        dropping.add("slow", 1, slow.session);
+        slow.stalled = true;
+
+        dropping.broadcast(null, 1, new Notification("in flight"));
+        dropping.broadcast(null, 1, new LoadGame(new GameData(1, null, null, "old", null)));
+        dropping.broadcast(null, 1, new Notification("queued"));
+        dropping.broadcast(null, 1, new LoadGame(new GameData(1, null, null, "new", null)));
+        slow.resume();
+
+        assertEquals(3, slow.sent.size());
+        assertFalse(String.join("", slow.sent).contains("old"));
+        assertTrue(slow.sent.get(2).contains("new"));
+        assertEquals(1, dropping.stats().dropped());
+        assertTrue(slow.open);
+    }
+
+    @Test
+    public void disconnectWhenFull() {
+        ConnectionManager strict = new ConnectionManager(2, Connection.OverflowPolicy.DISCONNECT);
+        FakeSession slow = new FakeSession();
+        FakeSession fast = new FakeSession();
+        strict.add("slow", 1, slow.session);
+        strict.add("fast", 1, fast.session);
+        slow.stalled = true;
+
+        for (int i = 0; i < 4; i++) {
+            strict.broadcast(null, 1, new Notification("move " + i));
+        }
+        assertFalse(slow.open);
+        assertEquals(StatusCode.POLICY_VIOLATION, slow.closeCode);
+        assertEquals(1, strict.stats().slowDisconnects());
+        assertEquals(4, fast.sent.size());
+        assertEquals(1, strict.roomSize(1));
+        assertFalse(strict.connections.containsKey(slow.session));
+    }
+
+    @Test
+    public void failedWriteDisconnects() {
+        FakeSession broken = new FakeSession();
+        FakeSession fine = new FakeSession();
+        connections.add("broken", 1, broken.session);
+        connections.add("fine", 1, fine.session);
+        broken.failing = true;
+
+        connections.broadcast(null, 1, new Notification("hello"));
+        assertFalse(broken.open);
+        assertEquals(StatusCode.SERVER_ERROR, broken.closeCode);
+        assertEquals(1, connections.roomSize(1));
+        assertFalse(connections.connections.containsKey(broken.session));
+        assertEquals(1, connections.stats().writeFailures());
+
+        connections.broadcast(null, 1, new Notification("again"));
+        assertEquals(1, broken.sent.size());
+        assertEquals(2, fine.sent.size());
+    }
+}
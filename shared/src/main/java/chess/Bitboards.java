@@ -0,0 +1,113 @@
+package chess;
+
+/**
+ * Precomputed attack tables and helpers for the bitboard representation used by
+ * {@link ChessBoard}. Squares are indexed a1 = 0, b1 = 1, ..., h8 = 63, so bit
+ * {@code (row - 1) * 8 + (column - 1)} of a bitboard stands for that square.
+ */
+final class Bitboards {
+    static final long RANK_1 = 0xFFL;
+    static final long RANK_3 = RANK_1 << 16;
+    static final long RANK_6 = RANK_1 << 40;
+    static final long RANK_8 = RANK_1 << 56;
+
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    // Indexed by color then square
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    // Ray directions, the first four move towards higher square indices
+    static final int NORTH = 0;
+    static final int EAST = 1;
+    static final int NORTH_EAST = 2;
+    static final int NORTH_WEST = 3;
+    static final int SOUTH = 4;
+    static final int WEST = 5;
+    static final int SOUTH_WEST = 6;
+    static final int SOUTH_EAST = 7;
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}, {-1, 0}, {0, -1}, {-1, -1}, {-1, 1}};
+    // Indexed by direction then square, excludes the square itself
+    static final long[][] RAYS = new long[8][64];
+
+    static {
+        int[][] knightDiffs = {{1, 2}, {2, 1}, {-1, 2}, {-2, 1}, {1, -2}, {2, -1}, {-1, -2}, {-2, -1}};
+        for (int square = 0; square < 64; square++) {
+            int row = row(square);
+            int col = column(square);
+            for (int[] diff : knightDiffs) {
+                KNIGHT_ATTACKS[square] |= bit(row + diff[0], col + diff[1]);
+            }
+            for (int[] direction : DIRECTIONS) {
+                KING_ATTACKS[square] |= bit(row + direction[0], col + direction[1]);
+            }
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+            for (int dir = 0; dir < 8; dir++) {
+                for (int i = 1; i < 8; i++) {
+                    RAYS[dir][square] |= bit(row + i * DIRECTIONS[dir][0], col + i * DIRECTIONS[dir][1]);
+                }
+            }
+        }
+    }
+
+    private Bitboards() {}
+
+    static int square(int row, int col) {
+        return (row - 1) * 8 + col - 1;
+    }
+
+    static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    static ChessPosition position(int square) {
+        return ChessPosition.of(row(square), column(square));
+    }
+
+    // Empty when off the board, which keeps the table setup free of bounds checks
+    private static long bit(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return 0L;
+        }
+        return 1L << square(row, col);
+    }
+
+    // Classical ray attacks: cut each ray off behind the first blocker in that direction
+    private static long rayAttacks(int dir, int square, long occupied) {
+        long ray = RAYS[dir][square];
+        long blockers = ray & occupied;
+        if (blockers == 0) {
+            return ray;
+        }
+        int blocker = dir < SOUTH
+                ? Long.numberOfTrailingZeros(blockers)
+                : 63 - Long.numberOfLeadingZeros(blockers);
+        return ray ^ RAYS[dir][blocker];
+    }
+
+    static long rookAttacks(int square, long occupied) {
+        return rayAttacks(NORTH, square, occupied)
+                | rayAttacks(EAST, square, occupied)
+                | rayAttacks(SOUTH, square, occupied)
+                | rayAttacks(WEST, square, occupied);
+    }
+
+    static long bishopAttacks(int square, long occupied) {
+        return rayAttacks(NORTH_EAST, square, occupied)
+                | rayAttacks(NORTH_WEST, square, occupied)
+                | rayAttacks(SOUTH_EAST, square, occupied)
+                | rayAttacks(SOUTH_WEST, square, occupied);
+    }
+
+    static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+}
@@ -1,7 +1,14 @@
 package chess;
 
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
@@ -9,8 +16,17 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessBoard.GsonAdapter.class)
 public class ChessBoard {
-    private ChessPiece[][] position = new ChessPiece[8][8];
+    // One bitboard per color and piece type, indexed by color * 6 + type
+    private long[] pieces = new long[12];
+    // Occupancy per color, indexed by color
+    private long[] colors = new long[2];
+    private long occupied;
+    // Zobrist key of the placement (see Zobrist), kept up to date by put and remove
+    private long key;
+    // Bumped by every public mutation so callers can tell when cached results go stale
+    private transient int version;
 
     public ChessBoard() {}
 
@@ -21,7 +37,15 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        this.position[position.getRow() - 1][position.getColumn() - 1] = piece;
+        this.version++;
+        int square = Bitboards.square(position);
+        int index = this.pieceIndex(square);
+        if (index >= 0) {
+            this.remove(square, index);
+        }
+        if (piece != null) {
+            this.put(square, piece.getTeamColor().ordinal() * 6 + piece.getPieceType().ordinal());
+        }
     }
 
     /**
@@ -32,36 +56,239 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return this.position[position.getRow() - 1][position.getColumn() - 1];
+        return this.pieceAt(Bitboards.square(position));
+    }
+
+    ChessPiece pieceAt(int square) {
+        int index = this.pieceIndex(square);
+        if (index < 0) {
+            return null;
+        }
+        return ChessPiece.of(index);
     }
 
     public void makeMove(ChessMove move) {
-        ChessPosition startPosition = move.getStartPosition();
-        ChessPiece piece = this.getPiece(startPosition);
-        this.position[startPosition.getRow() - 1][startPosition.getColumn() - 1] = null;
-        ChessPiece.PieceType promotionPiece = move.getPromotionPiece();
+        int packed = Move.of(move);
+        if (packed == Move.NONE) {
+            throw new RuntimeException("Invalid position.");
+        }
+        this.makeMove(packed | this.specialMoveFlags(Move.from(packed), Move.to(packed)));
+    }
+
+    /**
+     * Makes a move as part of the game, as opposed to trying one out
+     *
+     * @param move the packed move to make, with its castling or en passant flag if it has one
+     */
+    void makeMove(int move) {
+        this.version++;
+        this.makeMove(move, new Undo());
+    }
+
+    // Recognizes castling and en passant from the board alone, for moves that didn't
+    // come from the generator. Without the game's en passant square, a diagonal pawn move
+    // onto an empty square only counts as en passant from the fifth rank (fourth for
+    // black) with an enemy pawn beside it on the end square's column.
+    private int specialMoveFlags(int from, int to) {
+        int moved = this.pieceIndex(from);
+        if (moved < 0) {
+            return 0;
+        }
+        int type = moved % 6;
+        if (type == ChessPiece.PieceType.KING.ordinal() && Math.abs(to - from) == 2) {
+            return Move.CASTLE;
+        }
+        if (type == ChessPiece.PieceType.PAWN.ordinal() && (from & 7) != (to & 7) && this.pieceIndex(to) < 0) {
+            int color = moved / 6;
+            int enemyPawn = (1 - color) * 6 + ChessPiece.PieceType.PAWN.ordinal();
+            int fromRow = from / 8 + 1;
+            int passed = (from & ~7) | (to & 7);
+            if (fromRow == (color == ChessGame.TeamColor.WHITE.ordinal() ? 5 : 4) && this.pieceIndex(passed) == enemyPawn) {
+                return Move.EN_PASSANT;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Everything needed to take back a move made with {@link #makeMove(int, Undo)}.
+     * Callers reuse a single instance so trying out moves doesn't allocate.
+     */
+    static final class Undo {
+        int from;
+        int to;
+        // Piece indexes (color * 6 + type), -1 when there is none
+        int moved;
+        int placed;
+        int captured;
+        // Differs from to for en passant
+        int capturedSquare;
+        // Where castling took the rook from and to, -1 when the move wasn't castling
+        int rookFrom;
+        int rookTo;
+    }
+
+    /**
+     * Makes a move in place, recording what it takes to undo it
+     *
+     * @param move the packed move to make (see {@link Move}), not checked for legality
+     * @param undo filled in with the captured piece, promotion and castling state
+     */
+    void makeMove(int move, Undo undo) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        undo.from = from;
+        undo.to = to;
+        undo.moved = this.pieceIndex(from);
+        // A pawn taken en passant is beside the start square, on the end square's column
+        undo.capturedSquare = (move & Move.EN_PASSANT) != 0 ? (from & ~7) | (to & 7) : to;
+        undo.captured = this.pieceIndex(undo.capturedSquare);
+        undo.placed = undo.moved;
+        undo.rookFrom = -1;
+        if (undo.captured >= 0) {
+            this.remove(undo.capturedSquare, undo.captured);
+        }
+        if (undo.moved < 0) {
+            return;
+        }
+        this.remove(from, undo.moved);
+        ChessPiece.PieceType promotionPiece = Move.promotion(move);
         if (promotionPiece != null) {
-            piece = new ChessPiece(piece.getTeamColor(), promotionPiece);
+            undo.placed = undo.moved - undo.moved % 6 + promotionPiece.ordinal();
+        }
+        this.put(to, undo.placed);
+        if ((move & Move.CASTLE) != 0) {
+            // The rook comes from the corner on that side and jumps to the square the king crossed
+            int rook = undo.moved - undo.moved % 6 + ChessPiece.PieceType.ROOK.ordinal();
+            int rookFrom = to > from ? to + 1 : to - 2;
+            if ((this.pieces[rook] & (1L << rookFrom)) != 0) {
+                undo.rookFrom = rookFrom;
+                undo.rookTo = (from + to) / 2;
+                this.remove(undo.rookFrom, rook);
+                this.put(undo.rookTo, rook);
+            }
+        }
+    }
+
+    /**
+     * Takes back the last move made with {@link #makeMove(int, Undo)}
+     *
+     * @param undo the record filled in when the move was made
+     */
+    void unmakeMove(Undo undo) {
+        if (undo.rookFrom >= 0) {
+            int rook = undo.moved - undo.moved % 6 + ChessPiece.PieceType.ROOK.ordinal();
+            this.remove(undo.rookTo, rook);
+            this.put(undo.rookFrom, rook);
+        }
+        if (undo.moved >= 0) {
+            this.remove(undo.to, undo.placed);
+            this.put(undo.from, undo.moved);
+        }
+        if (undo.captured >= 0) {
+            this.put(undo.capturedSquare, undo.captured);
         }
-        this.addPiece(move.getEndPosition(), piece);
     }
 
     public ChessPosition findPiece(ChessPiece.PieceType type, ChessGame.TeamColor color) {
-        ChessPosition currentPosition;
-        ChessPiece currentPiece;
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                currentPosition = new ChessPosition(i, j);
-                currentPiece = this.getPiece(currentPosition);
-                if (currentPiece == null) {
-                    continue;
-                }
-                if (type == currentPiece.getPieceType() && color == currentPiece.getTeamColor()) {
-                    return currentPosition;
-                }
+        long bitboard = this.pieces(color, type);
+        if (bitboard == 0) {
+            return null;
+        }
+        return Bitboards.position(Long.numberOfTrailingZeros(bitboard));
+    }
+
+    /**
+     * Gets the Zobrist key of the piece placement, which is updated with every change
+     * instead of being recomputed from the whole board
+     *
+     * @return the 64-bit key, equal for boards with the same pieces on the same squares
+     */
+    public long getZobristKey() {
+        return this.key;
+    }
+
+    int version() {
+        return this.version;
+    }
+
+    long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return this.pieces[color.ordinal() * 6 + type.ordinal()];
+    }
+
+    long occupancy(ChessGame.TeamColor color) {
+        return this.colors[color.ordinal()];
+    }
+
+    long occupancy() {
+        return this.occupied;
+    }
+
+    /**
+     * The square the given team's king is on, or -1 if it has none. The king bitboard is
+     * kept up to date by every add and move, so this never scans the board.
+     */
+    int kingSquare(ChessGame.TeamColor color) {
+        long king = this.pieces(color, ChessPiece.PieceType.KING);
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Whether any piece of the given team attacks the square, regardless of whether
+     * moving there would leave its own king in check. Works outward from the square:
+     * a piece attacks it exactly when the same kind of piece standing on the square
+     * would attack that piece.
+     */
+    boolean isAttacked(int square, ChessGame.TeamColor by) {
+        int base = by.ordinal() * 6;
+        int defender = by == ChessGame.TeamColor.WHITE ? 1 : 0;
+        if ((Bitboards.PAWN_ATTACKS[defender][square] & this.pieces[base + ChessPiece.PieceType.PAWN.ordinal()]) != 0) {
+            return true;
+        }
+        if ((Bitboards.KNIGHT_ATTACKS[square] & this.pieces[base + ChessPiece.PieceType.KNIGHT.ordinal()]) != 0) {
+            return true;
+        }
+        if ((Bitboards.KING_ATTACKS[square] & this.pieces[base + ChessPiece.PieceType.KING.ordinal()]) != 0) {
+            return true;
+        }
+        long queens = this.pieces[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        long diagonals = this.pieces[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens;
+        if (diagonals != 0 && (Bitboards.bishopAttacks(square, this.occupied) & diagonals) != 0) {
+            return true;
+        }
+        long orthogonals = this.pieces[base + ChessPiece.PieceType.ROOK.ordinal()] | queens;
+        return orthogonals != 0 && (Bitboards.rookAttacks(square, this.occupied) & orthogonals) != 0;
+    }
+
+    // Index into pieces of whatever is on the square, or -1 if it's empty
+    int pieceIndex(int square) {
+        long bit = 1L << square;
+        if ((this.occupied & bit) == 0) {
+            return -1;
+        }
+        int start = (this.colors[0] & bit) != 0 ? 0 : 6;
+        for (int i = start; i < start + 6; i++) {
+            if ((this.pieces[i] & bit) != 0) {
+                return i;
             }
         }
-        return null;
+        return -1;
+    }
+
+    private void put(int square, int index) {
+        long bit = 1L << square;
+        this.pieces[index] |= bit;
+        this.colors[index / 6] |= bit;
+        this.occupied |= bit;
+        this.key ^= Zobrist.PIECES[index][square];
+    }
+
+    private void remove(int square, int index) {
+        long mask = ~(1L << square);
+        this.pieces[index] &= mask;
+        this.colors[index / 6] &= mask;
+        this.occupied &= mask;
+        this.key ^= Zobrist.PIECES[index][square];
     }
 
     /**
@@ -69,7 +296,11 @@ public class ChessBoard {
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        this.position = new ChessPiece[8][8];
+        this.version++;
+        this.pieces = new long[12];
+        this.colors = new long[2];
+        this.occupied = 0;
+        this.key = 0;
 
         int[] baseRows = {1, 8};
         int[] pawnRows = {2, 7};
@@ -87,26 +318,46 @@ public class ChessBoard {
         for (int row : baseRows) {
             ChessGame.TeamColor color = row == 1 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
             for (int i = 0; i < 8; i++) {
-                this.addPiece(new ChessPosition(row, i + 1), new ChessPiece(color, order[i]));
+                this.addPiece(ChessPosition.of(row, i + 1), ChessPiece.of(color, order[i]));
             }
         }
         for (int row : pawnRows) {
             ChessGame.TeamColor color = row == 2 ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
             for (int i = 0; i < 8; i++) {
-                this.addPiece(new ChessPosition(row, i + 1), new ChessPiece(color, ChessPiece.PieceType.PAWN));
+                this.addPiece(ChessPosition.of(row, i + 1), ChessPiece.of(color, ChessPiece.PieceType.PAWN));
             }
         }
     }
 
+    /**
+     * Creates a board from the piece placement field of a FEN string. Anything after
+     * the placement, like the rest of a full FEN record, is ignored.
+     *
+     * @param fen the FEN placement, rank 8 first
+     * @return the board
+     * @throws RuntimeException if the placement is malformed
+     */
+    public static ChessBoard fromFen(String fen) {
+        ChessBoard board = new ChessBoard();
+        Fen.readPlacement(fen, board);
+        return board;
+    }
+
+    /**
+     * @return the piece placement field of FEN for this board
+     */
+    public String toFen() {
+        StringBuilder out = new StringBuilder(72);
+        Fen.writePlacement(out, this);
+        return out.toString();
+    }
+
     public ChessBoard copy() {
         ChessBoard newBoard = new ChessBoard();
-        ChessPosition currentPosition;
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                currentPosition = new ChessPosition(i, j);
-                newBoard.addPiece(currentPosition, this.getPiece(currentPosition));
-            }
-        }
+        newBoard.pieces = this.pieces.clone();
+        newBoard.colors = this.colors.clone();
+        newBoard.occupied = this.occupied;
+        newBoard.key = this.key;
         return newBoard;
     }
 
@@ -119,11 +370,90 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(position, that.position);
+        return Arrays.equals(pieces, that.pieces);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(position);
+        return Long.hashCode(this.key);
+    }
+
+    /**
+     * Writes a board as its FEN piece placement. Reads that, and also the older forms
+     * stored before it: the object with one bitboard per piece, and the original object
+     * holding an 8x8 array of pieces.
+     */
+    public static class GsonAdapter extends TypeAdapter<ChessBoard> {
+        private final ChessPiece.GsonAdapter pieces = new ChessPiece.GsonAdapter();
+
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            if (board == null) {
+                out.nullValue();
+                return;
+            }
+            out.value(board.toFen());
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (in.peek() == JsonToken.STRING) {
+                String fen = in.nextString();
+                try {
+                    return ChessBoard.fromFen(fen);
+                } catch (RuntimeException e) {
+                    throw new JsonSyntaxException(e.getMessage(), e);
+                }
+            }
+            ChessBoard board = new ChessBoard();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "pieces" -> this.readBitboards(in, board);
+                    case "position" -> this.readPositions(in, board);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return board;
+        }
+
+        private void readBitboards(JsonReader in, ChessBoard board) throws IOException {
+            in.beginArray();
+            for (int index = 0; in.hasNext(); index++) {
+                long bitboard = in.nextLong();
+                if (index >= 12) {
+                    continue;
+                }
+                while (bitboard != 0) {
+                    int square = Long.numberOfTrailingZeros(bitboard);
+                    bitboard &= bitboard - 1;
+                    board.addPiece(Bitboards.position(square), ChessPiece.of(index));
+                }
+            }
+            in.endArray();
+        }
+
+        // Indexed by row - 1 then column - 1, with null for empty squares
+        private void readPositions(JsonReader in, ChessBoard board) throws IOException {
+            in.beginArray();
+            for (int row = 1; in.hasNext(); row++) {
+                in.beginArray();
+                for (int col = 1; in.hasNext(); col++) {
+                    ChessPiece piece = this.pieces.read(in);
+                    if (piece != null && piece.getPieceType() != null && row <= 8 && col <= 8
+                            && (piece.getTeamColor() == ChessGame.TeamColor.WHITE
+                            || piece.getTeamColor() == ChessGame.TeamColor.BLACK)) {
+                        board.addPiece(ChessPosition.of(row, col), piece);
+                    }
+                }
+                in.endArray();
+            }
+            in.endArray();
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,24 @@
 package chess;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Objects;
 
 /**
@@ -10,16 +27,83 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessGame.GsonAdapter.class)
 public class ChessGame {
+    // Castling rights bits, cleared once the king or that rook moves or the rook is taken
+    static final int WHITE_KING_SIDE = 1;
+    static final int WHITE_QUEEN_SIDE = 2;
+    static final int BLACK_KING_SIDE = 4;
+    static final int BLACK_QUEEN_SIDE = 8;
+    // Rights that survive a move from or to each square
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASK[Bitboards.square(1, 1)] &= ~WHITE_QUEEN_SIDE;
+        CASTLING_MASK[Bitboards.square(1, 5)] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        CASTLING_MASK[Bitboards.square(1, 8)] &= ~WHITE_KING_SIDE;
+        CASTLING_MASK[Bitboards.square(8, 1)] &= ~BLACK_QUEEN_SIDE;
+        CASTLING_MASK[Bitboards.square(8, 5)] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASK[Bitboards.square(8, 8)] &= ~BLACK_KING_SIDE;
+    }
+
     private ChessBoard board;
     private TeamColor turn;
+    private int castlingRights;
+    // The square a pawn skipped over with the last move, -1 unless an enemy pawn can
+    // capture onto it, so positions that differ only by an unusable one still repeat
+    private int enPassantSquare = -1;
+    // Zobrist keys of the positions since the last capture or pawn move, oldest first.
+    // Nothing before such a move can repeat, so this never holds more than about a
+    // hundred plies. It can be shorter than the halfmove clock when the game was loaded
+    // mid-way, since FEN carries the clock but not the positions behind it. Both the
+    // binary form and the JSON (see GsonAdapter) store it.
+    private transient long[] history = new long[16];
+    private transient int historySize;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    // Scratch space for trying out moves, not part of the game state
+    private final transient ChessBoard.Undo undo = new ChessBoard.Undo();
+    // Created on first use, since games that are only loaded and saved never need it
+    private transient MoveList moves;
+    // Legal moves (packed, see Move) and status of the team to move, valid while the
+    // board, its version and the turn all match what they were when it was computed
+    private transient int[] legalMoves;
+    private transient Collection<ChessMove> legalMoveView;
+    private transient GameStatus status;
+    private transient ChessBoard evaluatedBoard;
+    private transient int evaluatedVersion;
+    private transient TeamColor evaluatedTurn;
 
     public ChessGame() {
         this.board = new ChessBoard();
         this.board.resetBoard();
+        this.castlingRights = castlingRights(this.board);
         this.setTeamTurn(TeamColor.WHITE);
     }
 
+    private ChessGame(ChessBoard board, TeamColor turn) {
+        this.board = board;
+        this.turn = turn;
+    }
+
+    // A board on its own doesn't say whether the kings and rooks have moved, so assume
+    // they haven't if they are on their starting squares
+    private static int castlingRights(ChessBoard board) {
+        int rights = 0;
+        long whiteRooks = board.pieces(TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+        long blackRooks = board.pieces(TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+        if (board.kingSquare(TeamColor.WHITE) == Bitboards.square(1, 5)) {
+            rights |= (whiteRooks & (1L << Bitboards.square(1, 8))) != 0 ? WHITE_KING_SIDE : 0;
+            rights |= (whiteRooks & (1L << Bitboards.square(1, 1))) != 0 ? WHITE_QUEEN_SIDE : 0;
+        }
+        if (board.kingSquare(TeamColor.BLACK) == Bitboards.square(8, 5)) {
+            rights |= (blackRooks & (1L << Bitboards.square(8, 8))) != 0 ? BLACK_KING_SIDE : 0;
+            rights |= (blackRooks & (1L << Bitboards.square(8, 1))) != 0 ? BLACK_QUEEN_SIDE : 0;
+        }
+        return rights;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -36,6 +120,20 @@ public class ChessGame {
         this.turn = team;
     }
 
+    /**
+     * Gets the Zobrist key of the position: the board's key combined with whose turn it
+     * is, the castling rights and the en passant square
+     *
+     * @return the 64-bit key, equal for games in the same position
+     */
+    public long getZobristKey() {
+        long key = this.board.getZobristKey() ^ Zobrist.CASTLING[this.castlingRights];
+        if (this.enPassantSquare >= 0) {
+            key ^= Zobrist.EN_PASSANT[this.enPassantSquare & 7];
+        }
+        return this.turn == TeamColor.BLACK ? key ^ Zobrist.BLACK_TO_MOVE : key;
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
@@ -45,6 +143,19 @@ public class ChessGame {
         ENDED
     }
 
+    /**
+     * Where the team whose turn it is stands, or ENDED once the game is over
+     */
+    public enum GameStatus {
+        IN_PROGRESS,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        THREEFOLD_REPETITION,
+        FIFTY_MOVE_RULE,
+        ENDED
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -54,23 +165,152 @@ public class ChessGame {
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
         ChessPiece piece = this.board.getPiece(startPosition);
-        ArrayList<ChessMove> validMoves = new ArrayList<>();
         if (piece == null) {
-            return validMoves;
+            return new ArrayList<>();
+        }
+        MoveList moves = this.moves();
+        moves.clear();
+        this.addValidMoves(piece, Bitboards.square(startPosition), moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * Gets every valid move for the team whose turn it is
+     *
+     * @return Unmodifiable collection of valid moves, empty once the game has ended
+     */
+    public Collection<ChessMove> validMoves() {
+        this.evaluate();
+        if (this.legalMoveView == null) {
+            ArrayList<ChessMove> moves = new ArrayList<>(this.legalMoves.length);
+            for (int move : this.legalMoves) {
+                moves.add(Move.toChessMove(move));
+            }
+            this.legalMoveView = Collections.unmodifiableList(moves);
+        }
+        return this.legalMoveView;
+    }
+
+    private MoveList moves() {
+        if (this.moves == null) {
+            this.moves = new MoveList();
+        }
+        return this.moves;
+    }
+
+    // Appends the piece's legal moves, generating them into the list and then
+    // compacting away the ones that leave its own king in check
+    private void addValidMoves(ChessPiece piece, int square, MoveList moves) {
+        ChessBoard.Undo undo = this.undo;
+        int start = moves.size();
+        // En passant is only ever open to the team to move
+        int enPassantSquare = piece.getTeamColor() == this.turn ? this.enPassantSquare : -1;
+        piece.addMoves(this.board, square, this.castlingRights, enPassantSquare, moves);
+        int kept = start;
+        for (int i = start; i < moves.size(); i++) {
+            int move = moves.get(i);
+            this.board.makeMove(move, undo);
+            boolean inCheck = this.isInCheck(piece.getTeamColor());
+            this.board.unmakeMove(undo);
+            if (!inCheck) {
+                moves.set(kept++, move);
+            }
+        }
+        moves.truncate(kept);
+    }
+
+    /**
+     * Evaluates the position for the team whose turn it is. The legal moves and the
+     * resulting status are computed once and reused until the board or turn changes.
+     *
+     * @return the status of the team to move
+     */
+    public GameStatus getGameStatus() {
+        if (this.turn == TeamColor.ENDED) {
+            return GameStatus.ENDED;
+        }
+        this.evaluate();
+        if (this.status == null) {
+            boolean inCheck = this.isInCheck(this.turn);
+            if (this.legalMoves.length == 0) {
+                this.status = inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+            } else if (this.isThreefoldRepetition()) {
+                this.status = GameStatus.THREEFOLD_REPETITION;
+            } else if (this.halfmoveClock >= 100) {
+                this.status = GameStatus.FIFTY_MOVE_RULE;
+            } else {
+                this.status = inCheck ? GameStatus.CHECK : GameStatus.IN_PROGRESS;
+            }
         }
+        return this.status;
+    }
 
-        for (ChessMove move : piece.pieceMoves(this.board, startPosition)) {
-            ChessBoard originalBoard = this.board.copy();
-            this.board.makeMove(move);
-            if (this.isInCheck(piece.getTeamColor())) {
-                this.board = originalBoard;
-                continue;
+    // Only positions with the same side to move can match, so every other entry is skipped.
+    // This scans the history rather than keeping a count per key, which is cheap because
+    // the history only goes back to the last capture or pawn move: at most fifty entries
+    // are compared before the fifty-move rule ends the game anyway.
+    private boolean isThreefoldRepetition() {
+        long key = this.getZobristKey();
+        int count = 1;
+        for (int i = this.historySize - 2; i >= 0; i -= 2) {
+            if (this.history[i] == key && ++count == 3) {
+                return true;
             }
-            this.board = originalBoard;
-            validMoves.add(move);
         }
+        return false;
+    }
 
-        return validMoves;
+    /**
+     * Gets the number of moves made since the last capture or pawn move
+     *
+     * @return the halfmove clock, where 100 means the fifty-move rule applies
+     */
+    public int getHalfmoveClock() {
+        return this.halfmoveClock;
+    }
+
+    /**
+     * Gets how many half moves have been played, counted from the standard starting
+     * position using the fullmove number and whose turn it is
+     *
+     * @return the ply, or -1 once the game has ended and the side to move is unknown
+     */
+    public int getPly() {
+        return switch (this.turn) {
+            case WHITE -> (this.fullmoveNumber - 1) * 2;
+            case BLACK -> (this.fullmoveNumber - 1) * 2 + 1;
+            case ENDED -> -1;
+        };
+    }
+
+    private boolean isEvaluated() {
+        return this.legalMoves != null
+                && this.evaluatedBoard == this.board
+                && this.evaluatedVersion == this.board.version()
+                && this.evaluatedTurn == this.turn;
+    }
+
+    // Fills the legal move cache for the team to move if it is stale
+    private void evaluate() {
+        if (this.isEvaluated()) {
+            return;
+        }
+        MoveList moves = this.moves();
+        moves.clear();
+        if (this.turn != TeamColor.ENDED) {
+            long own = this.board.occupancy(this.turn);
+            while (own != 0) {
+                int square = Long.numberOfTrailingZeros(own);
+                own &= own - 1;
+                this.addValidMoves(this.board.pieceAt(square), square, moves);
+            }
+        }
+        this.legalMoves = moves.toArray();
+        this.legalMoveView = null;
+        this.status = null;
+        this.evaluatedBoard = this.board;
+        this.evaluatedVersion = this.board.version();
+        this.evaluatedTurn = this.turn;
     }
 
     /**
@@ -87,11 +327,53 @@ public class ChessGame {
         if (piece.getTeamColor() != this.turn) {
             throw new InvalidMoveException("Out of turn");
         }
-        if (!this.validMoves(move.getStartPosition()).contains(move)) {
+        this.evaluate();
+        int legal = this.findLegalMove(Move.of(move));
+        if (legal == Move.NONE) {
             throw new InvalidMoveException("Invalid move");
         }
-        this.board.makeMove(move);
-        this.setTeamTurn(this.turn == TeamColor.BLACK ? TeamColor.WHITE : TeamColor.BLACK);
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN || (legal & Move.CAPTURE) != 0) {
+            this.historySize = 0;
+            this.halfmoveClock = 0;
+        } else {
+            if (this.historySize == this.history.length) {
+                this.history = Arrays.copyOf(this.history, this.history.length * 2);
+            }
+            this.history[this.historySize++] = this.getZobristKey();
+            this.halfmoveClock++;
+        }
+        this.board.makeMove(legal);
+
+        int from = Move.from(legal);
+        int to = Move.to(legal);
+        TeamColor opponent = this.turn == TeamColor.BLACK ? TeamColor.WHITE : TeamColor.BLACK;
+        this.castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        this.enPassantSquare = -1;
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN && Math.abs(to - from) == 16) {
+            this.enPassantSquare = this.usableEnPassantSquare((from + to) / 2, this.turn);
+        }
+        if (this.turn == TeamColor.BLACK) {
+            this.fullmoveNumber++;
+        }
+        this.setTeamTurn(opponent);
+    }
+
+    // The skipped square if an enemy pawn could capture onto it, otherwise -1
+    private int usableEnPassantSquare(int skipped, TeamColor mover) {
+        TeamColor opponent = mover == TeamColor.BLACK ? TeamColor.WHITE : TeamColor.BLACK;
+        long capturers = Bitboards.PAWN_ATTACKS[mover.ordinal()][skipped]
+                & this.board.pieces(opponent, ChessPiece.PieceType.PAWN);
+        return capturers != 0 ? skipped : -1;
+    }
+
+    // The generated move (with its flags) matching the given one, or NONE if it isn't legal
+    private int findLegalMove(int move) {
+        for (int legal : this.legalMoves) {
+            if ((legal & Move.KEY_MASK) == move) {
+                return legal;
+            }
+        }
+        return Move.NONE;
     }
 
     /**
@@ -101,33 +383,12 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = this.board.findPiece(ChessPiece.PieceType.KING, teamColor);
-        if (kingPosition == null) {
+        int kingSquare = this.board.kingSquare(teamColor);
+        if (kingSquare < 0) {
             throw new RuntimeException("King not found.");
         }
-
-        // Test all opponent pieces
-        ChessPosition currentPosition;
-        ChessPiece currentPiece;
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                currentPosition = new ChessPosition(i, j);
-                currentPiece = this.board.getPiece(currentPosition);
-                if (currentPiece == null) {
-                    continue;
-                }
-                if (currentPiece.getTeamColor() == teamColor) {
-                    continue;
-                }
-                for (ChessMove move : this.board.getPiece(currentPosition).pieceMoves(this.board, currentPosition)) {
-                    if (move.getEndPosition().equals(kingPosition)) {
-                        return true;
-                    }
-                }
-            }
-        }
-
-        return false;
+        TeamColor opponent = teamColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        return this.board.isAttacked(kingSquare, opponent);
     }
 
     /**
@@ -152,33 +413,38 @@ public class ChessGame {
     }
 
     private boolean cannotMove(TeamColor teamColor) {
-        ChessPosition currentPosition;
-        ChessPiece currentPiece;
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                currentPosition = new ChessPosition(i, j);
-                currentPiece = this.board.getPiece(currentPosition);
-                if (currentPiece == null) {
-                    continue;
-                }
-                if (currentPiece.getTeamColor() != teamColor) {
-                    continue;
-                }
-                if (!this.validMoves(currentPosition).isEmpty()) {
-                    return false;
-                }
+        if (teamColor == this.turn) {
+            this.evaluate();
+            return this.legalMoves.length == 0;
+        }
+        MoveList moves = this.moves();
+        moves.clear();
+        long own = this.board.occupancy(teamColor);
+        while (own != 0) {
+            int square = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            this.addValidMoves(this.board.pieceAt(square), square, moves);
+            if (!moves.isEmpty()) {
+                return false;
             }
         }
         return true;
     }
 
     /**
-     * Sets this game's chessboard with a given board
+     * Sets this game's chessboard with a given board, which starts a new move history.
+     * Castling rights are inferred from where the kings and rooks stand.
      *
      * @param board the new board to use
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        this.castlingRights = castlingRights(board);
+        this.enPassantSquare = -1;
+        this.historySize = 0;
+        this.halfmoveClock = 0;
+        this.fullmoveNumber = 1;
+        this.legalMoves = null;
     }
 
     /**
@@ -190,6 +456,226 @@ public class ChessGame {
         return this.board;
     }
 
+    /**
+     * Creates a game from a FEN record. The halfmove clock and fullmove number may be
+     * left off and default to 0 and 1. As an extension, "-" for the side to move loads
+     * a game that has ended.
+     *
+     * @param fen the FEN record
+     * @return the game, with no history behind the position
+     * @throws RuntimeException if the record is malformed
+     */
+    public static ChessGame fromFen(String fen) {
+        ChessBoard board = new ChessBoard();
+        int i = Fen.readPlacement(fen, board);
+        i = Fen.skipSeparator(fen, i);
+        TeamColor turn = switch (Fen.charAt(fen, i++)) {
+            case 'w' -> TeamColor.WHITE;
+            case 'b' -> TeamColor.BLACK;
+            case '-' -> TeamColor.ENDED;
+            default -> throw Fen.invalid(fen);
+        };
+        ChessGame game = new ChessGame(board, turn);
+
+        i = Fen.skipSeparator(fen, i);
+        if (Fen.charAt(fen, i) == '-') {
+            i++;
+        } else {
+            while (i < fen.length() && fen.charAt(i) != ' ') {
+                game.castlingRights |= switch (fen.charAt(i++)) {
+                    case 'K' -> WHITE_KING_SIDE;
+                    case 'Q' -> WHITE_QUEEN_SIDE;
+                    case 'k' -> BLACK_KING_SIDE;
+                    case 'q' -> BLACK_QUEEN_SIDE;
+                    default -> throw Fen.invalid(fen);
+                };
+            }
+            // Rights are meaningless once the king or rook has left its square
+            game.castlingRights &= castlingRights(board);
+        }
+
+        i = Fen.skipSeparator(fen, i);
+        if (Fen.charAt(fen, i) == '-') {
+            i++;
+        } else {
+            int square = Fen.readSquare(fen, i);
+            i += 2;
+            if (turn != TeamColor.ENDED) {
+                // Only a square just behind a pawn that moved two squares counts
+                TeamColor mover = turn == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+                int pushed = mover == TeamColor.WHITE ? square + 8 : square - 8;
+                if (Bitboards.row(square) != (mover == TeamColor.WHITE ? 3 : 6)
+                        || (board.pieces(mover, ChessPiece.PieceType.PAWN) & (1L << pushed)) == 0) {
+                    throw Fen.invalid(fen);
+                }
+                game.enPassantSquare = game.usableEnPassantSquare(square, mover);
+            }
+        }
+
+        if (i < fen.length()) {
+            i = Fen.skipSeparator(fen, i);
+            int end = Fen.endOfNumber(fen, i);
+            game.halfmoveClock = Fen.readNumber(fen, i, end);
+            i = Fen.skipSeparator(fen, end);
+            end = Fen.endOfNumber(fen, i);
+            game.fullmoveNumber = Math.max(1, Fen.readNumber(fen, i, end));
+            i = end;
+        }
+        if (i != fen.length()) {
+            throw Fen.invalid(fen);
+        }
+        return game;
+    }
+
+    /**
+     * @return the position as a full FEN record, with "-" for the side to move once the
+     * game has ended
+     */
+    public String toFen() {
+        StringBuilder out = new StringBuilder(90);
+        Fen.writePlacement(out, this.board);
+        out.append(' ').append(switch (this.turn) {
+            case WHITE -> 'w';
+            case BLACK -> 'b';
+            case ENDED -> '-';
+        }).append(' ');
+        if (this.castlingRights == 0) {
+            out.append('-');
+        } else {
+            if ((this.castlingRights & WHITE_KING_SIDE) != 0) {
+                out.append('K');
+            }
+            if ((this.castlingRights & WHITE_QUEEN_SIDE) != 0) {
+                out.append('Q');
+            }
+            if ((this.castlingRights & BLACK_KING_SIDE) != 0) {
+                out.append('k');
+            }
+            if ((this.castlingRights & BLACK_QUEEN_SIDE) != 0) {
+                out.append('q');
+            }
+        }
+        out.append(' ');
+        if (this.enPassantSquare < 0) {
+            out.append('-');
+        } else {
+            Fen.writeSquare(out, this.enPassantSquare);
+        }
+        out.append(' ').append(this.halfmoveClock).append(' ').append(this.fullmoveNumber);
+        return out.toString();
+    }
+
+    /**
+     * Version byte leading the binary form written by {@link #toBytes()}
+     */
+    public static final byte BINARY_VERSION = 1;
+
+    /**
+     * Encodes the game compactly for storage: a version byte, 4 bits per square (0 for
+     * empty, otherwise the piece's color * 6 + type + 1), a byte for the turn and
+     * castling rights, the en passant square, the halfmove clock and fullmove number,
+     * then the repetition history. A game with no history takes 41 bytes.
+     *
+     * @return the encoded game
+     */
+    public byte[] toBytes() {
+        // Only the most recent positions can still repeat, so a long history is cut short
+        int historySize = Math.min(this.historySize, 0xFFFF);
+        ByteBuffer out = ByteBuffer.allocate(41 + historySize * Long.BYTES);
+        out.put(BINARY_VERSION);
+        for (int square = 0; square < 64; square += 2) {
+            int low = this.board.pieceIndex(square) + 1;
+            int high = this.board.pieceIndex(square + 1) + 1;
+            out.put((byte) (low | high << 4));
+        }
+        out.put((byte) (this.turn.ordinal() | this.castlingRights << 2));
+        out.put((byte) this.enPassantSquare);
+        out.putShort((short) Math.min(this.halfmoveClock, 0xFFFF));
+        out.putShort((short) Math.min(this.fullmoveNumber, 0xFFFF));
+        out.putShort((short) historySize);
+        for (int i = this.historySize - historySize; i < this.historySize; i++) {
+            out.putLong(this.history[i]);
+        }
+        return out.array();
+    }
+
+    /**
+     * Decodes a game written by {@link #toBytes()}
+     *
+     * @param bytes the encoded game
+     * @return the game
+     * @throws RuntimeException if the data is malformed or from an unknown version
+     */
+    public static ChessGame fromBytes(byte[] bytes) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            if (in.get() != BINARY_VERSION) {
+                throw new RuntimeException("Unsupported game data version.");
+            }
+            ChessBoard board = new ChessBoard();
+            for (int square = 0; square < 64; square += 2) {
+                int pair = in.get() & 0xFF;
+                decodeSquare(board, square, pair & 0xF);
+                decodeSquare(board, square + 1, pair >>> 4);
+            }
+            int state = in.get() & 0xFF;
+            if ((state & 3) >= TeamColor.values().length) {
+                throw new RuntimeException("Invalid game data.");
+            }
+            ChessGame game = new ChessGame(board, TeamColor.values()[state & 3]);
+            game.castlingRights = (state >>> 2) & castlingRights(board);
+            int enPassantSquare = in.get();
+            game.enPassantSquare = enPassantSquare >= 0 && enPassantSquare < 64 ? enPassantSquare : -1;
+            game.halfmoveClock = in.getShort() & 0xFFFF;
+            game.fullmoveNumber = Math.max(1, in.getShort() & 0xFFFF);
+            game.historySize = in.getShort() & 0xFFFF;
+            game.history = new long[Math.max(16, game.historySize)];
+            for (int i = 0; i < game.historySize; i++) {
+                game.history[i] = in.getLong();
+            }
+            if (in.hasRemaining()) {
+                throw new RuntimeException("Invalid game data.");
+            }
+            return game;
+        } catch (BufferUnderflowException e) {
+            throw new RuntimeException("Invalid game data.");
+        }
+    }
+
+    private static void decodeSquare(ChessBoard board, int square, int code) {
+        if (code > 12) {
+            throw new RuntimeException("Invalid game data.");
+        }
+        if (code > 0) {
+            board.addPiece(Bitboards.position(square), ChessPiece.of(code - 1));
+        }
+    }
+
+    /**
+     * Creates an independent copy of this game, sharing any legal moves already
+     * computed for the current position
+     *
+     * @return the copy
+     */
+    public ChessGame copy() {
+        ChessGame newGame = new ChessGame(this.board.copy(), this.turn);
+        newGame.castlingRights = this.castlingRights;
+        newGame.enPassantSquare = this.enPassantSquare;
+        newGame.history = this.history.clone();
+        newGame.historySize = this.historySize;
+        newGame.halfmoveClock = this.halfmoveClock;
+        newGame.fullmoveNumber = this.fullmoveNumber;
+        if (this.isEvaluated()) {
+            newGame.legalMoves = this.legalMoves;
+            newGame.legalMoveView = this.legalMoveView;
+            newGame.status = this.status;
+            newGame.evaluatedBoard = newGame.board;
+            newGame.evaluatedVersion = newGame.board.version();
+            newGame.evaluatedTurn = newGame.turn;
+        }
+        return newGame;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -199,11 +685,71 @@ public class ChessGame {
             return false;
         }
         ChessGame chessGame = (ChessGame) o;
-        return Objects.equals(board, chessGame.board) && turn == chessGame.turn;
+        return Objects.equals(board, chessGame.board) && turn == chessGame.turn
+                && castlingRights == chessGame.castlingRights && enPassantSquare == chessGame.enPassantSquare;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(board, turn);
+        return Long.hashCode(this.getZobristKey());
+    }
+
+    /**
+     * Reads and writes games with Gson's usual field by field form, plus the repetition
+     * history under "history". Games saved before castling rights were stored load with
+     * every right, so the rights are narrowed to what the board still allows.
+     */
+    public static class GsonAdapter implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != ChessGame.class) {
+                return null;
+            }
+            TypeAdapter<ChessGame> fields = gson.getDelegateAdapter(this, TypeToken.get(ChessGame.class));
+            TypeAdapter<JsonElement> elements = gson.getAdapter(JsonElement.class);
+            return (TypeAdapter<T>) new TypeAdapter<ChessGame>() {
+                @Override
+                public void write(JsonWriter out, ChessGame game) throws IOException {
+                    if (game == null || game.historySize == 0) {
+                        fields.write(out, game);
+                        return;
+                    }
+                    JsonObject json = fields.toJsonTree(game).getAsJsonObject();
+                    JsonArray history = new JsonArray(game.historySize);
+                    for (int i = 0; i < game.historySize; i++) {
+                        history.add(game.history[i]);
+                    }
+                    json.add("history", history);
+                    elements.write(out, json);
+                }
+
+                @Override
+                public ChessGame read(JsonReader in) throws IOException {
+                    JsonElement json = elements.read(in);
+                    if (json == null || json.isJsonNull()) {
+                        return null;
+                    }
+                    ChessGame game = fields.fromJsonTree(json);
+                    if (game.board != null) {
+                        game.castlingRights &= castlingRights(game.board);
+                    }
+                    JsonElement history = json.getAsJsonObject().get("history");
+                    if (history != null && history.isJsonArray()) {
+                        JsonArray keys = history.getAsJsonArray();
+                        game.history = new long[Math.max(16, keys.size())];
+                        game.historySize = keys.size();
+                        try {
+                            for (int i = 0; i < keys.size(); i++) {
+                                game.history[i] = keys.get(i).getAsLong();
+                            }
+                        } catch (RuntimeException e) {
+                            throw new JsonParseException("Invalid game history", e);
+                        }
+                    }
+                    return game;
+                }
+            };
+        }
     }
 }
@@ -1,5 +1,13 @@
 package chess;
 
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -8,6 +16,7 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessMove.GsonAdapter.class)
 public class ChessMove {
     private final ChessPosition startPosition;
     private final ChessPosition endPosition;
@@ -44,6 +53,50 @@ public class ChessMove {
         return this.promotionPiece;
     }
 
+    /**
+     * @return the move in long algebraic notation, like "e2e4" or "e7e8q" for a promotion
+     */
+    public String toNotation() {
+        char[] notation = new char[this.promotionPiece == null ? 4 : 5];
+        notation[0] = (char) ('a' + this.startPosition.getColumn() - 1);
+        notation[1] = (char) ('0' + this.startPosition.getRow());
+        notation[2] = (char) ('a' + this.endPosition.getColumn() - 1);
+        notation[3] = (char) ('0' + this.endPosition.getRow());
+        if (this.promotionPiece != null) {
+            notation[4] = Character.toLowerCase(Fen.pieceChar(this.promotionPiece.ordinal()));
+        }
+        return new String(notation);
+    }
+
+    /**
+     * Reads a move written by {@link #toNotation()}
+     *
+     * @throws RuntimeException if the notation isn't a move between two squares
+     */
+    public static ChessMove fromNotation(String notation) {
+        if ((notation.length() != 4 && notation.length() != 5) || !isSquare(notation, 0) || !isSquare(notation, 2)) {
+            throw new RuntimeException("Invalid move: " + notation);
+        }
+        ChessPiece.PieceType promotion = null;
+        if (notation.length() == 5) {
+            int index = Fen.pieceIndex(Character.toUpperCase(notation.charAt(4)));
+            if (index < 0) {
+                throw new RuntimeException("Invalid move: " + notation);
+            }
+            promotion = ChessPiece.PieceType.values()[index];
+        }
+        return new ChessMove(
+                ChessPosition.of(notation.charAt(1) - '0', notation.charAt(0) - 'a' + 1),
+                ChessPosition.of(notation.charAt(3) - '0', notation.charAt(2) - 'a' + 1),
+                promotion);
+    }
+
+    private static boolean isSquare(String notation, int index) {
+        char file = notation.charAt(index);
+        char rank = notation.charAt(index + 1);
+        return file >= 'a' && file <= 'h' && rank >= '1' && rank <= '8';
+    }
+
     @Override
     public String toString() {
         ChessPiece.PieceType promotionPiece = this.getPromotionPiece();
@@ -79,4 +132,74 @@ public class ChessMove {
     public int hashCode() {
         return Objects.hash(startPosition, endPosition, promotionPiece);
     }
+
+    /**
+     * Writes a move in long algebraic notation ("e2e4", or "e7e8q" for a promotion) and
+     * reads either that or the older {"startPosition": ..., "endPosition": ...,
+     * "promotionPiece": ...} form
+     */
+    public static class GsonAdapter extends TypeAdapter<ChessMove> {
+        private final ChessPosition.GsonAdapter positions = new ChessPosition.GsonAdapter();
+
+        @Override
+        public void write(JsonWriter out, ChessMove move) throws IOException {
+            if (move == null) {
+                out.nullValue();
+                return;
+            }
+            if (move.startPosition == null || move.endPosition == null) {
+                out.beginObject();
+                out.name("startPosition");
+                this.positions.write(out, move.startPosition);
+                out.name("endPosition");
+                this.positions.write(out, move.endPosition);
+                out.name("promotionPiece").value(move.promotionPiece == null ? null : move.promotionPiece.name());
+                out.endObject();
+                return;
+            }
+            out.value(move.toNotation());
+        }
+
+        @Override
+        public ChessMove read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (in.peek() == JsonToken.STRING) {
+                try {
+                    return fromNotation(in.nextString());
+                } catch (RuntimeException e) {
+                    throw new JsonSyntaxException(e.getMessage(), e);
+                }
+            }
+            ChessPosition start = null;
+            ChessPosition end = null;
+            ChessPiece.PieceType promotion = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "startPosition" -> start = this.positions.read(in);
+                    case "endPosition" -> end = this.positions.read(in);
+                    case "promotionPiece" -> promotion = promotionPiece(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ChessMove(start, end, promotion);
+        }
+
+        private static ChessPiece.PieceType promotionPiece(String name) {
+            try {
+                return ChessPiece.PieceType.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                throw new JsonSyntaxException("Invalid promotion piece: " + name, e);
+            }
+        }
+    }
 }
@@ -1,6 +1,13 @@
 package chess;
 
-import java.util.ArrayList;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Objects;
 
@@ -10,7 +17,19 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessPiece.GsonAdapter.class)
 public class ChessPiece {
+    // Every piece, indexed by color * 6 + type like the board's bitboards
+    private static final ChessPiece[] PIECES = new ChessPiece[ChessGame.TeamColor.values().length * 6];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[color.ordinal() * 6 + type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor color;
     private final PieceType type;
 
@@ -19,6 +38,20 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Gets the shared instance for a piece instead of allocating a new one
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        if (pieceColor == null || type == null) {
+            return new ChessPiece(pieceColor, type);
+        }
+        return PIECES[pieceColor.ordinal() * 6 + type.ordinal()];
+    }
+
+    static ChessPiece of(int index) {
+        return PIECES[index];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -53,278 +86,98 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        return switch(this.type) {
-            case KING -> kingMoves(board, myPosition);
-            case QUEEN -> queenMoves(board, myPosition);
-            case BISHOP -> bishopMoves(board, myPosition);
-            case KNIGHT -> knightMoves(board, myPosition);
-            case ROOK -> rookMoves(board, myPosition);
-            case PAWN -> pawnMoves(board, myPosition);
-        };
-    }
-
-    private Collection<ChessMove> kingMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> moves = this.orthogonalMoves(board, myPosition, 1);
-        moves.addAll(this.diagonalMoves(board, myPosition, 1));
-        return moves;
-    }
-
-    private Collection<ChessMove> queenMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> moves = this.orthogonalMoves(board, myPosition, 0);
-        moves.addAll(this.diagonalMoves(board, myPosition, 0));
-        return moves;
-    }
-
-    private Collection<ChessMove> bishopMoves(ChessBoard board, ChessPosition myPosition) {
-        return this.diagonalMoves(board, myPosition, 0);
-    }
-
-    private Collection<ChessMove> knightMoves(ChessBoard board, ChessPosition myPosition) {
-        ArrayList<ChessMove> moves = new ArrayList<>();
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
-        int[][] diffs = {{1, 2}, {2, 1}, {-1, 2}, {-2, 1}, {1, -2}, {2, -1}, {-1, -2}, {-2, -1}};
-
-        for (int[] diff : diffs) {
-            int newRow = row + diff[0];
-            int newCol = col + diff[1];
-            try {
-                ChessPosition newPosition = new ChessPosition(newRow, newCol);
-                if (this.isBlocked(board, newPosition)) {
-                    continue;
-                }
-                moves.add(new ChessMove(myPosition, newPosition, null));
-            } catch (RuntimeException e) {}
-        }
-
-        return moves;
-    }
-
-    private Collection<ChessMove> rookMoves(ChessBoard board, ChessPosition myPosition) {
-        return this.orthogonalMoves(board, myPosition, 0);
+        MoveList moves = new MoveList();
+        this.addMoves(board, Bitboards.square(myPosition), 0, -1, moves);
+        return moves.toChessMoves();
     }
 
-    private Collection<ChessMove> pawnMoves(ChessBoard board, ChessPosition myPosition) {
-        ArrayList<ChessMove> moves = new ArrayList<>();
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
-        int baseRow = 0;
-        int lastRow = 0;
-        int dir = 0;
-        switch (this.getTeamColor()) {
-            case ChessGame.TeamColor.WHITE:
-                baseRow = 2;
-                lastRow = 7;
-                dir = 1;
-                break;
-            case ChessGame.TeamColor.BLACK:
-                baseRow = 7;
-                lastRow = 2;
-                dir = -1;
-                break;
-        }
-
-        int[][] diffs = {{dir, -1}, {dir, 0}, {dir, 1}};
+    /**
+     * Appends this piece's moves from the given square to the list in packed form. On top
+     * of {@link #pieceMoves(ChessBoard, ChessPosition)} this includes castling and en
+     * passant, which depend on the game's history rather than just the board.
+     *
+     * @param castlingRights  the rights bits still held (see {@link ChessGame#WHITE_KING_SIDE})
+     * @param enPassantSquare the square a pawn can capture en passant onto, or -1
+     */
+    void addMoves(ChessBoard board, int square, int castlingRights, int enPassantSquare, MoveList moves) {
+        long own = board.occupancy(this.color);
+        long occupied = board.occupancy();
+        long targets = switch(this.type) {
+            case KING -> Bitboards.KING_ATTACKS[square] & ~own;
+            case QUEEN -> Bitboards.queenAttacks(square, occupied) & ~own;
+            case BISHOP -> Bitboards.bishopAttacks(square, occupied) & ~own;
+            case KNIGHT -> Bitboards.KNIGHT_ATTACKS[square] & ~own;
+            case ROOK -> Bitboards.rookAttacks(square, occupied) & ~own;
+            case PAWN -> this.pawnTargets(board, square);
+        };
 
-        ArrayList<ChessPosition> positions = new ArrayList<>();
-        for (int[] diff : diffs) {
-            int newRow = row + diff[0];
-            int newCol = col + diff[1];
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int flags = (occupied & (1L << target)) != 0 ? Move.CAPTURE : 0;
             // Pawn promotion is mandatory (a pawn can't be on the back rank)
-            ChessPosition newPosition;
-            try {
-                newPosition = new ChessPosition(newRow, newCol);
-            } catch (RuntimeException e) {
-                continue;
-            }
-            // Straight
-            if (diff[1] == 0) {
-                // isBlocked handles pawns correctly
-                if (this.isBlocked(board, newPosition)) {
-                    continue;
-                }
-                positions.add(newPosition);
-                if (row == baseRow) {
-                    newPosition = new ChessPosition(row + (2 * dir), col);
-                    if (!this.isBlocked(board, newPosition)) {
-                        positions.add(newPosition);
-                    }
-                }
-            // Capture
-            } else if (this.canCapture(board, newPosition)) {
-                positions.add(newPosition);
-            }
-        }
-
-        for (ChessPosition position : positions) {
-            if (row == lastRow) {
-                moves.add(new ChessMove(myPosition, position, PieceType.QUEEN));
-                moves.add(new ChessMove(myPosition, position, PieceType.BISHOP));
-                moves.add(new ChessMove(myPosition, position, PieceType.KNIGHT));
-                moves.add(new ChessMove(myPosition, position, PieceType.ROOK));
+            if (this.type == PieceType.PAWN && ((Bitboards.RANK_1 | Bitboards.RANK_8) & (1L << target)) != 0) {
+                moves.add(Move.of(square, target, PieceType.QUEEN, flags));
+                moves.add(Move.of(square, target, PieceType.BISHOP, flags));
+                moves.add(Move.of(square, target, PieceType.KNIGHT, flags));
+                moves.add(Move.of(square, target, PieceType.ROOK, flags));
             } else {
-                moves.add(new ChessMove(myPosition, position, null));
+                moves.add(Move.of(square, target) | flags);
             }
         }
 
-        return moves;
-    }
-
-    // When limit is 0 it's considered as no limit
-    // Limit is limit per direction.
-    private Collection<ChessMove> orthogonalMoves(ChessBoard board, ChessPosition myPosition, int limit) {
-        ArrayList<ChessMove> moves = new ArrayList<>();
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
-        // Right
-        for (int i = 1; i <= 8 - col; i++) {
-            ChessPosition newPosition = new ChessPosition(row, col + i);
-            if (this.isBlocked(board, newPosition)) {
-                break;
-            }
-            moves.add(new ChessMove(myPosition, newPosition, null));
-            if (this.canCapture(board, newPosition)) {
-                break;
-            }
-            if (i == limit) {
-                break;
-            }
+        if (this.type == PieceType.PAWN && enPassantSquare >= 0
+                && (Bitboards.PAWN_ATTACKS[this.color.ordinal()][square] & (1L << enPassantSquare)) != 0) {
+            moves.add(Move.of(square, enPassantSquare) | Move.CAPTURE | Move.EN_PASSANT);
         }
-        // Left
-        for (int i = 1; i <= col - 1; i++) {
-            ChessPosition newPosition = new ChessPosition(row, col - i);
-            if (this.isBlocked(board, newPosition)) {
-                break;
-            }
-            moves.add(new ChessMove(myPosition, newPosition, null));
-            if (this.canCapture(board, newPosition)) {
-                break;
-            }
-            if (i == limit) {
-                break;
-            }
+        if (this.type == PieceType.KING && castlingRights != 0) {
+            this.addCastling(board, square, castlingRights, moves);
         }
-        // Up
-        for (int i = 1; i <= 8 - row; i++) {
-            ChessPosition newPosition = new ChessPosition(row + i, col);
-            if (this.isBlocked(board, newPosition)) {
-                break;
-            }
-            moves.add(new ChessMove(myPosition, newPosition, null));
-            if (this.canCapture(board, newPosition)) {
-                break;
-            }
-            if (i == limit) {
-                break;
-            }
-        }
-        // Down
-        for (int i = 1; i <= row - 1; i++) {
-            ChessPosition newPosition = new ChessPosition(row - i, col);
-            if (this.isBlocked(board, newPosition)) {
-                break;
-            }
-            moves.add(new ChessMove(myPosition, newPosition, null));
-            if (this.canCapture(board, newPosition)) {
-                break;
-            }
-            if (i == limit) {
-                break;
-            }
-        }
-
-        return moves;
     }
 
-    // When limit is 0 it's considered as no limit
-    // Limit is limit per direction
-    private Collection<ChessMove> diagonalMoves(ChessBoard board, ChessPosition myPosition, int limit) {
-        ArrayList<ChessMove> moves = new ArrayList<>();
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
-
-        // Top right
-        for (int i = 1; i <= Math.min(8 - row, 8 - col); i++) {
-            ChessPosition newPosition = new ChessPosition(row + i, col + i);
-            if (this.isBlocked(board, newPosition)) {
-                break;
-            }
-            moves.add(new ChessMove(myPosition, newPosition, null));
-            if (this.canCapture(board, newPosition)) {
-                break;
-            }
-            if (i == limit) {
-                break;
-            }
+    // The king can't castle out of or through check; landing in check is left to the same
+    // legality filter as every other move
+    private void addCastling(ChessBoard board, int square, int castlingRights, MoveList moves) {
+        boolean white = this.color == ChessGame.TeamColor.WHITE;
+        int home = white ? Bitboards.square(1, 5) : Bitboards.square(8, 5);
+        int rights = (white ? castlingRights : castlingRights >>> 2) & 3;
+        if (square != home || rights == 0) {
+            return;
         }
-        // Bottom right
-        for (int i = 1; i <= Math.min(row - 1, 8 - col); i++) {
-            ChessPosition newPosition = new ChessPosition(row - i, col + i);
-            if (this.isBlocked(board, newPosition)) {
-                break;
-            }
-            moves.add(new ChessMove(myPosition, newPosition, null));
-            if (this.canCapture(board, newPosition)) {
-                break;
-            }
-            if (i == limit) {
-                break;
-            }
+        ChessGame.TeamColor enemy = white ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        if (board.isAttacked(home, enemy)) {
+            return;
         }
-        // Top left
-        for (int i = 1; i <= Math.min(8 - row, col - 1); i++) {
-            ChessPosition newPosition = new ChessPosition(row + i, col - i);
-            if (this.isBlocked(board, newPosition)) {
-                break;
-            }
-            moves.add(new ChessMove(myPosition, newPosition, null));
-            if (this.canCapture(board, newPosition)) {
-                break;
-            }
-            if (i == limit) {
-                break;
-            }
+        long occupied = board.occupancy();
+        long rooks = board.pieces(this.color, PieceType.ROOK);
+        if ((rights & ChessGame.WHITE_KING_SIDE) != 0
+                && (rooks & (1L << (home + 3))) != 0
+                && (occupied & (3L << (home + 1))) == 0
+                && !board.isAttacked(home + 1, enemy)) {
+            moves.add(Move.of(home, home + 2) | Move.CASTLE);
         }
-        // Bottom left
-        for (int i = 1; i <= Math.min(row - 1, col - 1); i++) {
-            ChessPosition newPosition = new ChessPosition(row - i, col - i);
-            if (this.isBlocked(board, newPosition)) {
-                break;
-            }
-            moves.add(new ChessMove(myPosition, newPosition, null));
-            if (this.canCapture(board, newPosition)) {
-                break;
-            }
-            if (i == limit) {
-                break;
-            }
+        if ((rights & ChessGame.WHITE_QUEEN_SIDE) != 0
+                && (rooks & (1L << (home - 4))) != 0
+                && (occupied & (7L << (home - 3))) == 0
+                && !board.isAttacked(home - 1, enemy)) {
+            moves.add(Move.of(home, home - 2) | Move.CASTLE);
         }
-
-        return moves;
     }
 
-    // Only considers being blocked by other pieces
-    private boolean isBlocked(ChessBoard board, ChessPosition newPosition) {
-        ChessPiece other = board.getPiece(newPosition);
-        if (other == null) {
-            return false;
-        }
-        if (this.getPieceType() == PieceType.PAWN) {
-            return true;
-        }
-        return other.getTeamColor() == this.getTeamColor();
-    }
-
-    // Only implemented for non-pawn pieces, doesn't check if king will be in check
-    private boolean canCapture(ChessBoard board, ChessPosition newPosition) {
-        ChessPiece other = board.getPiece(newPosition);
-        if (other == null) {
-            return false;
+    // Pawns only capture diagonally and only push onto empty squares
+    private long pawnTargets(ChessBoard board, int square) {
+        long empty = ~board.occupancy();
+        long enemy = board.occupancy() & ~board.occupancy(this.color);
+        long pawn = 1L << square;
+        long pushes;
+        if (this.color == ChessGame.TeamColor.WHITE) {
+            pushes = (pawn << 8) & empty;
+            pushes |= ((pushes & Bitboards.RANK_3) << 8) & empty;
+        } else {
+            pushes = (pawn >>> 8) & empty;
+            pushes |= ((pushes & Bitboards.RANK_6) >>> 8) & empty;
         }
-        return other.getTeamColor() != this.getTeamColor();
+        return pushes | (Bitboards.PAWN_ATTACKS[this.color.ordinal()][square] & enemy);
     }
 
     @Override
@@ -357,4 +210,62 @@ public class ChessPiece {
     public int hashCode() {
         return Objects.hash(color, type);
     }
+
+    /**
+     * Writes a piece as its FEN letter ("P" for a white pawn, "k" for a black king) and
+     * reads either that or the older {"color": "WHITE", "type": "PAWN"} form, handing out
+     * the shared instances
+     */
+    public static class GsonAdapter extends TypeAdapter<ChessPiece> {
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            if (piece == null) {
+                out.nullValue();
+                return;
+            }
+            if (piece.color == ChessGame.TeamColor.WHITE || piece.color == ChessGame.TeamColor.BLACK) {
+                if (piece.type != null) {
+                    out.value(String.valueOf(Fen.pieceChar(piece.color.ordinal() * 6 + piece.type.ordinal())));
+                    return;
+                }
+            }
+            out.beginObject();
+            out.name("color").value(piece.color == null ? null : piece.color.name());
+            out.name("type").value(piece.type == null ? null : piece.type.name());
+            out.endObject();
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (in.peek() == JsonToken.STRING) {
+                String letter = in.nextString();
+                int index = letter.length() == 1 ? Fen.pieceIndex(letter.charAt(0)) : -1;
+                if (index < 0) {
+                    throw new JsonSyntaxException("Invalid piece: " + letter);
+                }
+                return ChessPiece.of(index);
+            }
+            ChessGame.TeamColor color = null;
+            PieceType type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "color" -> color = ChessGame.TeamColor.valueOf(in.nextString());
+                    case "type" -> type = PieceType.valueOf(in.nextString());
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return ChessPiece.of(color, type);
+        }
+    }
 }
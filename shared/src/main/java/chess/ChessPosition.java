@@ -1,5 +1,13 @@
 package chess;
 
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Objects;
 
 /**
@@ -8,7 +16,17 @@ import java.util.Objects;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessPosition.GsonAdapter.class)
 public class ChessPosition {
+    // Every square, indexed by (row - 1) * 8 + (col - 1)
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (int i = 0; i < 64; i++) {
+            POSITIONS[i] = new ChessPosition(i / 8 + 1, i % 8 + 1);
+        }
+    }
+
     private final int row;
     private final int col;
 
@@ -20,6 +38,18 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Gets the shared instance for a square instead of allocating a new one
+     *
+     * @throws RuntimeException if the square is off the board
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row > 8 || row < 1 || col > 8 || col < 1) {
+            throw new RuntimeException("Invalid position.");
+        }
+        return POSITIONS[(row - 1) * 8 + col - 1];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -39,7 +69,8 @@ public class ChessPosition {
     @Override
     public String toString() {
         char col = (char)('a' + this.getColumn() - 1);
-        return String.format("%c%d", col, this.getRow());
+        char row = (char)('0' + this.getRow());
+        return new String(new char[] {col, row});
     }
 
     public static ChessPosition fromString(String s) {
@@ -47,7 +78,7 @@ public class ChessPosition {
         char rank = s.charAt(1);
         int col = file - 'a' + 1;
         int row = Character.getNumericValue(rank);
-        return new ChessPosition(row, col);
+        return ChessPosition.of(row, col);
     }
 
     @Override
@@ -66,4 +97,56 @@ public class ChessPosition {
     public int hashCode() {
         return Objects.hash(row, col);
     }
+
+    /**
+     * Writes a position as its square name ("e2") and reads either that or the older
+     * {"row": 2, "col": 5} form, handing out the shared instances
+     */
+    public static class GsonAdapter extends TypeAdapter<ChessPosition> {
+        @Override
+        public void write(JsonWriter out, ChessPosition position) throws IOException {
+            if (position == null) {
+                out.nullValue();
+                return;
+            }
+            out.value(position.toString());
+        }
+
+        @Override
+        public ChessPosition read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (in.peek() == JsonToken.STRING) {
+                String square = in.nextString();
+                if (square.length() != 2) {
+                    throw new JsonSyntaxException("Invalid position: " + square);
+                }
+                return parse(square.charAt(0), square.charAt(1));
+            }
+            int row = 0;
+            int col = 0;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "row" -> row = in.nextInt();
+                    case "col" -> col = in.nextInt();
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (row < 1 || row > 8 || col < 1 || col > 8) {
+                throw new JsonSyntaxException("Invalid position: row " + row + ", col " + col);
+            }
+            return ChessPosition.of(row, col);
+        }
+
+        private static ChessPosition parse(char file, char rank) {
+            if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+                throw new JsonSyntaxException("Invalid position: " + file + rank);
+            }
+            return ChessPosition.of(rank - '0', file - 'a' + 1);
+        }
+    }
 }
@@ -0,0 +1,146 @@
+package chess;
+
+/**
+ * Reading and writing Forsyth-Edwards Notation. The parsing helpers walk the string
+ * with an index instead of splitting it, so loading a position only allocates the
+ * board and game it fills in.
+ */
+final class Fen {
+    static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // Indexed like the board's bitboards (color * 6 + type), uppercase is white
+    private static final String PIECES = "KQBNRPkqbnrp";
+
+    private Fen() {}
+
+    /**
+     * @return the FEN letter for a piece index, uppercase for white
+     */
+    static char pieceChar(int index) {
+        return PIECES.charAt(index);
+    }
+
+    /**
+     * @return the piece index for a FEN letter, or -1 if it isn't one
+     */
+    static int pieceIndex(char c) {
+        return PIECES.indexOf(c);
+    }
+
+    static RuntimeException invalid(CharSequence fen) {
+        return new RuntimeException("Invalid FEN: " + fen);
+    }
+
+    static char charAt(CharSequence fen, int i) {
+        if (i >= fen.length()) {
+            throw invalid(fen);
+        }
+        return fen.charAt(i);
+    }
+
+    /**
+     * Reads the piece placement field from the start of the string onto an empty board
+     *
+     * @return the index just past the field
+     */
+    static int readPlacement(CharSequence fen, ChessBoard board) {
+        int i = 0;
+        int row = 8;
+        int col = 1;
+        while (i < fen.length() && fen.charAt(i) != ' ') {
+            char c = fen.charAt(i++);
+            if (c == '/') {
+                if (col != 9 || row == 1) {
+                    throw invalid(fen);
+                }
+                row--;
+                col = 1;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                int index = pieceIndex(c);
+                if (index < 0 || col > 8) {
+                    throw invalid(fen);
+                }
+                board.addPiece(ChessPosition.of(row, col), ChessPiece.of(index));
+                col++;
+            }
+            if (col > 9) {
+                throw invalid(fen);
+            }
+        }
+        if (row != 1 || col != 9) {
+            throw invalid(fen);
+        }
+        return i;
+    }
+
+    static void writePlacement(StringBuilder out, ChessBoard board) {
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                int index = board.pieceIndex(Bitboards.square(row, col));
+                if (index < 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                out.append(pieceChar(index));
+            }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+            if (row > 1) {
+                out.append('/');
+            }
+        }
+    }
+
+    /**
+     * @return the index of the next field, after the single space separating it
+     */
+    static int skipSeparator(CharSequence fen, int i) {
+        if (charAt(fen, i) != ' ') {
+            throw invalid(fen);
+        }
+        return i + 1;
+    }
+
+    static int readSquare(CharSequence fen, int i) {
+        int col = charAt(fen, i) - 'a' + 1;
+        int row = charAt(fen, i + 1) - '0';
+        if (col < 1 || col > 8 || row < 1 || row > 8) {
+            throw invalid(fen);
+        }
+        return Bitboards.square(row, col);
+    }
+
+    static void writeSquare(StringBuilder out, int square) {
+        out.append((char) ('a' + Bitboards.column(square) - 1)).append((char) ('0' + Bitboards.row(square)));
+    }
+
+    /**
+     * @return the index just past the digits starting at i
+     */
+    static int endOfNumber(CharSequence fen, int i) {
+        int end = i;
+        while (end < fen.length() && fen.charAt(end) >= '0' && fen.charAt(end) <= '9') {
+            end++;
+        }
+        if (end == i || end - i > 6) {
+            throw invalid(fen);
+        }
+        return end;
+    }
+
+    static int readNumber(CharSequence fen, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + fen.charAt(i) - '0';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+package chess;
+
+/**
+ * Helpers for moves packed into a single int, used by move generation so trying out
+ * moves doesn't allocate. Bits 0-5 hold the start square, bits 6-11 the end square
+ * (indexed like {@link Bitboards}), bits 12-14 the promotion piece type's ordinal plus
+ * one (0 for none), and the bits above that are flags. {@link ChessMove} is only built
+ * at the public API.
+ */
+final class Move {
+    // Set on moves returned by the generator that land on an enemy piece
+    static final int CAPTURE = 1 << 15;
+    // A king moving two squares, which also moves the rook
+    static final int CASTLE = 1 << 16;
+    // A pawn capturing the enemy pawn beside it that just moved two squares
+    static final int EN_PASSANT = 1 << 17;
+    // Covers the squares and promotion but not the flags, which is what a ChessMove carries
+    static final int KEY_MASK = (1 << 15) - 1;
+    // Never equal to a generated move
+    static final int NONE = -1;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private Move() {}
+
+    static int of(int from, int to) {
+        return from | to << 6;
+    }
+
+    static int of(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int packed = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | to << 6 | packed << 12 | flags;
+    }
+
+    /**
+     * @return the packed form of the move, or {@link #NONE} if either position is off the board
+     */
+    static int of(ChessMove move) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        if (!onBoard(start) || !onBoard(end)) {
+            return NONE;
+        }
+        return of(Bitboards.square(start), Bitboards.square(end), move.getPromotionPiece(), 0);
+    }
+
+    static int from(int move) {
+        return move & 0x3F;
+    }
+
+    static int to(int move) {
+        return move >>> 6 & 0x3F;
+    }
+
+    /**
+     * @return the promotion piece type, or null if the move isn't a promotion
+     */
+    static ChessPiece.PieceType promotion(int move) {
+        int packed = move >>> 12 & 7;
+        return packed == 0 ? null : TYPES[packed - 1];
+    }
+
+    static ChessMove toChessMove(int move) {
+        return new ChessMove(Bitboards.position(from(move)), Bitboards.position(to(move)), promotion(move));
+    }
+
+    private static boolean onBoard(ChessPosition position) {
+        return position != null
+                && position.getRow() >= 1 && position.getRow() <= 8
+                && position.getColumn() >= 1 && position.getColumn() <= 8;
+    }
+}
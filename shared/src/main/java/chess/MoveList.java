@@ -0,0 +1,60 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A growable buffer of packed moves (see {@link Move}) meant to be cleared and reused,
+ * so generating and filtering moves doesn't allocate once it has grown large enough.
+ */
+final class MoveList {
+    // No position has more than 218 legal moves
+    private int[] moves = new int[256];
+    private int size;
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    int get(int i) {
+        return this.moves[i];
+    }
+
+    void set(int i, int move) {
+        this.moves[i] = move;
+    }
+
+    void add(int move) {
+        if (this.size == this.moves.length) {
+            this.moves = Arrays.copyOf(this.moves, this.size * 2);
+        }
+        this.moves[this.size++] = move;
+    }
+
+    void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Drops every move from the given index on
+     */
+    void truncate(int size) {
+        this.size = size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(this.moves, this.size);
+    }
+
+    ArrayList<ChessMove> toChessMoves() {
+        ArrayList<ChessMove> result = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            result.add(Move.toChessMove(this.moves[i]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the key of every
+ * piece on its square plus {@link #BLACK_TO_MOVE} when it's black's turn and the keys
+ * for the castling rights and en passant square, so making a move only needs to XOR
+ * in and out the keys of what it touches. The seed is
+ * fixed so keys are the same from run to run.
+ */
+final class Zobrist {
+    // Indexed by piece index (color * 6 + type) then square
+    static final long[][] PIECES = new long[12][64];
+    static final long BLACK_TO_MOVE;
+    // Indexed by the castling rights bits (see ChessGame)
+    static final long[] CASTLING = new long[16];
+    // Indexed by the column of the en passant square
+    static final long[] EN_PASSANT = new long[8];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C4E55L);
+        for (long[] squares : PIECES) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+        // No rights hash to zero so a position without them keys like the bare placement
+        for (int rights = 1; rights < CASTLING.length; rights++) {
+            CASTLING[rights] = random.nextLong();
+        }
+        for (int col = 0; col < EN_PASSANT.length; col++) {
+            EN_PASSANT[col] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {}
+}
@@ -1,6 +1,6 @@
 package exception;
 
-import com.google.gson.Gson;
+import serialization.Serializer;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -17,7 +17,7 @@ public class ResponseException extends Exception {
     }
 
     public String toJson() {
-        return new Gson().toJson(Map.of("message", "Error: " + getMessage(), "status", this.statusCode));
+        return Serializer.GSON.toJson(Map.of("message", "Error: " + getMessage(), "status", this.statusCode));
     }
 
     public static ResponseException unauthorized() {
@@ -33,7 +33,7 @@ public class ResponseException extends Exception {
     }
 
     public static ResponseException fromJson(InputStream stream) {
-        var map = new Gson().fromJson(new InputStreamReader(stream), HashMap.class);
+        var map = Serializer.GSON.fromJson(new InputStreamReader(stream), HashMap.class);
         var status = ((Double)map.get("status")).intValue();
         String message = map.get("message").toString();
         return new ResponseException(status, message);
@@ -0,0 +1,25 @@
+package model;
+
+import chess.ChessGame;
+
+/**
+ * What a game listing shows about a game, without its board. The status is only
+ * IN_PROGRESS or ENDED, and the move count is the number of plies played.
+ */
+public record GameSummary(int gameID, String whiteUsername, String blackUsername, String gameName,
+                          ChessGame.GameStatus status, int moveCount) {
+    public static ChessGame.GameStatus statusOf(ChessGame game) {
+        return game != null && game.getTeamTurn() == ChessGame.TeamColor.ENDED
+                ? ChessGame.GameStatus.ENDED
+                : ChessGame.GameStatus.IN_PROGRESS;
+    }
+
+    /**
+     * @param moveCount used when the game has ended, since its ply can't be worked out then
+     */
+    public static GameSummary of(GameData data, int moveCount) {
+        int ply = data.game() == null ? -1 : data.game().getPly();
+        return new GameSummary(data.gameID(), data.whiteUsername(), data.blackUsername(), data.gameName(),
+                statusOf(data.game()), ply < 0 ? moveCount : ply);
+    }
+}
@@ -0,0 +1,27 @@
+package record;
+
+import chess.ChessGame;
+import model.GameSummary;
+
+/**
+ * Which games a listing includes, every field left null or false matches all games.
+ *
+ * @param openSeats only games with an empty seat
+ * @param status    only games IN_PROGRESS or only ENDED ones
+ * @param player    only games the user is playing in
+ */
+public record GameFilter(boolean openSeats, ChessGame.GameStatus status, String player) {
+    public static final GameFilter ALL = new GameFilter(false, null, null);
+
+    public boolean matches(GameSummary game) {
+        if (this.openSeats && game.whiteUsername() != null && game.blackUsername() != null) {
+            return false;
+        }
+        if (this.status != null && this.status != game.status()) {
+            return false;
+        }
+        return this.player == null
+                || this.player.equals(game.whiteUsername())
+                || this.player.equals(game.blackUsername());
+    }
+}
@@ -0,0 +1,12 @@
+package record;
+
+import model.GameSummary;
+
+import java.util.Collection;
+
+/**
+ * One page of a game listing
+ *
+ * @param next the cursor for the following page, or null on the last one
+ */
+public record ListGameSummariesResponse(Collection<GameSummary> games, Integer next) {}
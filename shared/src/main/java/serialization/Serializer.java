@@ -0,0 +1,16 @@
+package serialization;
+
+import com.google.gson.Gson;
+
+/**
+ * The Gson instance shared by the server, client and data access. Gson is thread-safe
+ * and caches its adapters, so building it once saves redoing the reflection on every
+ * request. The chess types pick their compact adapters with @JsonAdapter, so any Gson
+ * reads and writes them the same way: boards as FEN placement, moves as "e2e4",
+ * positions as "e2" and pieces as FEN letters.
+ */
+public final class Serializer {
+    public static final Gson GSON = new Gson();
+
+    private Serializer() {}
+}
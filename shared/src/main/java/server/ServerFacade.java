@@ -1,11 +1,12 @@
 package server;
 
-import com.google.gson.Gson;
 import exception.ResponseException;
 import record.*;
+import serialization.Serializer;
 
 import java.io.*;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
 
 public class ServerFacade {
     private final String serverUrl;
@@ -31,7 +32,28 @@ public class ServerFacade {
     }
 
     public ListGamesResponse listGames(String auth) throws ResponseException {
-        return this.makeRequest("GET", "/game", null, ListGamesResponse.class, auth);
+        return this.makeRequest("GET", "/game?full=true", null, ListGamesResponse.class, auth);
+    }
+
+    /**
+     * @param after the previous page's next cursor, or null for the first page
+     */
+    public ListGameSummariesResponse listGameSummaries(String auth, GameFilter filter, Integer after) throws ResponseException {
+        StringBuilder path = new StringBuilder("/game?");
+        if (after != null) {
+            path.append("after=").append(after).append('&');
+        }
+        if (filter.openSeats()) {
+            path.append("open=true&");
+        }
+        if (filter.status() != null) {
+            path.append("status=").append(filter.status().name()).append('&');
+        }
+        if (filter.player() != null) {
+            path.append("player=").append(URLEncoder.encode(filter.player(), StandardCharsets.UTF_8)).append('&');
+        }
+        path.setLength(path.length() - 1);
+        return this.makeRequest("GET", path.toString(), null, ListGameSummariesResponse.class, auth);
     }
 
     public void joinGame(JoinGameRequest req, String auth) throws ResponseException {
@@ -66,7 +88,7 @@ public class ServerFacade {
     private static void writeBody(Object request, HttpURLConnection http) throws IOException {
         if (request != null) {
             http.addRequestProperty("Content-Type", "application/json");
-            String reqData = new Gson().toJson(request);
+            String reqData = Serializer.GSON.toJson(request);
             try (OutputStream reqBody = http.getOutputStream()) {
                 reqBody.write(reqData.getBytes());
             }
@@ -79,7 +101,7 @@ public class ServerFacade {
             try (InputStream respBody = http.getInputStream()) {
                 InputStreamReader reader = new InputStreamReader(respBody);
                 if (responseClass != null) {
-                    response = new Gson().fromJson(reader, responseClass);
+                    response = Serializer.GSON.fromJson(reader, responseClass);
                 }
             }
         }
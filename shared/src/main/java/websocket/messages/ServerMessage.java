@@ -1,6 +1,6 @@
 package websocket.messages;
 
-import com.google.gson.Gson;
+import serialization.Serializer;
 
 import java.util.Objects;
 
@@ -46,6 +46,6 @@ public class ServerMessage {
 
     @Override
     public String toString() {
-        return new Gson().toJson(this);
+        return Serializer.GSON.toJson(this);
     }
 }
@@ -0,0 +1,59 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+public class BinaryCodecTests {
+    @Test
+    @DisplayName("Round Trip")
+    public void roundTrip() {
+        for (String fen : Perft.POSITIONS.values()) {
+            ChessGame game = ChessGame.fromFen(fen);
+            byte[] bytes = game.toBytes();
+            Assertions.assertEquals(41, bytes.length);
+            ChessGame decoded = ChessGame.fromBytes(bytes);
+            Assertions.assertEquals(game, decoded);
+            Assertions.assertEquals(fen, decoded.toFen());
+            Assertions.assertEquals(game.getZobristKey(), decoded.getZobristKey());
+        }
+    }
+
+    @Test
+    @DisplayName("Ended Game")
+    public void endedGame() {
+        ChessGame game = new ChessGame();
+        game.setTeamTurn(ChessGame.TeamColor.ENDED);
+        Assertions.assertEquals(ChessGame.TeamColor.ENDED, ChessGame.fromBytes(game.toBytes()).getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("History Survives a Round Trip")
+    public void history() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        String[][] moves = {{"g1", "f3"}, {"g8", "f6"}, {"f3", "g1"}, {"f6", "g8"}, {"g1", "f3"}, {"g8", "f6"}, {"f3", "g1"}};
+        for (String[] move : moves) {
+            game.makeMove(new ChessMove(ChessPosition.fromString(move[0]), ChessPosition.fromString(move[1]), null));
+        }
+        byte[] bytes = game.toBytes();
+        Assertions.assertEquals(41 + moves.length * Long.BYTES, bytes.length);
+
+        ChessGame decoded = ChessGame.fromBytes(bytes);
+        Assertions.assertEquals(ChessGame.GameStatus.IN_PROGRESS, decoded.getGameStatus());
+        decoded.makeMove(new ChessMove(ChessPosition.of(6, 6), ChessPosition.of(8, 7), null));
+        Assertions.assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, decoded.getGameStatus());
+    }
+
+    @Test
+    @DisplayName("Malformed Data")
+    public void malformed() {
+        byte[] bytes = new ChessGame().toBytes();
+        Assertions.assertThrows(RuntimeException.class, () -> ChessGame.fromBytes(new byte[0]));
+        Assertions.assertThrows(RuntimeException.class, () -> ChessGame.fromBytes(Arrays.copyOf(bytes, 20)));
+        Assertions.assertThrows(RuntimeException.class, () -> ChessGame.fromBytes(Arrays.copyOf(bytes, 42)));
+        bytes[0] = 2;
+        Assertions.assertThrows(RuntimeException.class, () -> ChessGame.fromBytes(bytes));
+    }
+}
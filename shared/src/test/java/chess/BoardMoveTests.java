@@ -0,0 +1,74 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+/**
+ * Moves made on a board directly, which have to work out castling and en passant
+ * without the game's state
+ */
+public class BoardMoveTests {
+    @Test
+    @DisplayName("Diagonal Pawn Move Keeps Neighbors")
+    public void diagonalMoveKeepsNeighbors() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |N|P| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """);
+        board.makeMove(new ChessMove(ChessPosition.of(5, 5), ChessPosition.of(6, 4), null));
+        ChessBoard endBoard = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | |P| | | | |
+                | | | |N| | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """);
+        Assertions.assertEquals(endBoard, board, "Board move removed a piece that wasn't captured en passant");
+    }
+
+    @Test
+    @DisplayName("En Passant Only From Its Rank")
+    public void enPassantOnlyFromItsRank() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |p|P| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """);
+        board.makeMove(new ChessMove(ChessPosition.of(4, 5), ChessPosition.of(5, 4), null));
+        Assertions.assertNotNull(board.getPiece(ChessPosition.of(4, 4)),
+                "Board move took a pawn en passant from the wrong rank");
+    }
+
+    @Test
+    @DisplayName("Board En Passant Capture")
+    public void enPassantCapture() {
+        ChessBoard board = TestUtilities.loadBoard("""
+                | | | | |k| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | |p|P| | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                | | | | |K| | | |
+                """);
+        board.makeMove(new ChessMove(ChessPosition.of(5, 5), ChessPosition.of(6, 4), null));
+        Assertions.assertNull(board.getPiece(ChessPosition.of(5, 4)), "Board move didn't take the pawn en passant");
+    }
+}
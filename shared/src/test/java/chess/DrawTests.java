@@ -0,0 +1,73 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import passoff.chess.TestUtilities;
+
+public class DrawTests {
+    private static void move(ChessGame game, String from, String to) throws InvalidMoveException {
+        game.makeMove(new ChessMove(ChessPosition.fromString(from), ChessPosition.fromString(to), null));
+    }
+
+    @Test
+    @DisplayName("Threefold Repetition")
+    public void threefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getGameStatus());
+            move(game, "g1", "f3");
+            move(game, "g8", "f6");
+            move(game, "f3", "g1");
+            move(game, "f6", "g8");
+        }
+        Assertions.assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, game.getGameStatus());
+    }
+
+    @Test
+    @DisplayName("Pawn Move Resets Repetition")
+    public void pawnMoveResets() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        move(game, "g1", "f3");
+        move(game, "g8", "f6");
+        move(game, "f3", "g1");
+        move(game, "f6", "g8");
+        move(game, "e2", "e3");
+        Assertions.assertEquals(0, game.getHalfmoveClock());
+        move(game, "g8", "f6");
+        move(game, "g1", "f3");
+        move(game, "f6", "g8");
+        move(game, "f3", "g1");
+        Assertions.assertEquals(4, game.getHalfmoveClock());
+        Assertions.assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getGameStatus());
+    }
+
+    @Test
+    @DisplayName("Fifty-Move Rule")
+    public void fiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.setBoard(TestUtilities.loadBoard("""
+                | | | | | | | |k|
+                | | | | | | | | |
+                |r| | | | | | | |
+                | | | | | | | | |
+                | | | | | | | | |
+                |R| | | | | | | |
+                | | | | | | | | |
+                | | | | | | | |K|
+                """));
+        game.setTeamTurn(ChessGame.TeamColor.WHITE);
+        // Cycles of 7 and 6 squares only bring a position back every 84 plies, so it
+        // can't happen three times before the fifty moves are up
+        String[] white = {"a3", "b3", "c3", "d3", "e3", "f3", "g3"};
+        String[] black = {"a6", "b6", "c6", "d6", "e6", "f6"};
+        for (int i = 0; i < 50; i++) {
+            Assertions.assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getGameStatus());
+            move(game, white[i % 7], white[(i + 1) % 7]);
+            Assertions.assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.getGameStatus());
+            move(game, black[i % 6], black[(i + 1) % 6]);
+        }
+        Assertions.assertEquals(100, game.getHalfmoveClock());
+        Assertions.assertEquals(ChessGame.GameStatus.FIFTY_MOVE_RULE, game.getGameStatus());
+    }
+}
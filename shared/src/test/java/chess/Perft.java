@@ -0,0 +1,101 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Perft (performance test) for the move generator: counts the leaf nodes of the legal
+ * move tree to a fixed depth using only ChessGame.validMoves and makeMove, so the counts
+ * can be compared against published reference numbers.
+ * <p>
+ * The main method prints node counts and nodes per second for each reference position,
+ * or a divide (per-move subtotals) of one position when given a name and depth:
+ * <code>mvn -pl shared test-compile org.codehaus.mojo:exec-maven-plugin:3.1.1:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=chess.Perft -Dexec.args="start 4"</code>
+ */
+public class Perft {
+    public static final Map<String, String> POSITIONS = new LinkedHashMap<>();
+
+    static {
+        POSITIONS.put("start", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        POSITIONS.put("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        POSITIONS.put("endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+        POSITIONS.put("middlegame", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10");
+        POSITIONS.put("castling", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1");
+        POSITIONS.put("promotion", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8");
+    }
+
+    public static ChessGame load(String name) {
+        return ChessGame.fromFen(POSITIONS.get(name));
+    }
+
+    /**
+     * @return the number of leaf nodes of the legal move tree below the game's position
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (depth == 1) {
+            return game.validMoves().size();
+        }
+        long nodes = 0;
+        for (ChessMove move : game.validMoves()) {
+            nodes += perft(play(game, move), depth - 1);
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the perft count below each legal move, keyed by the move in long algebraic notation
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth) {
+        Map<String, Long> counts = new TreeMap<>();
+        for (ChessMove move : game.validMoves()) {
+            counts.put(notation(move), perft(play(game, move), depth - 1));
+        }
+        return counts;
+    }
+
+    private static ChessGame play(ChessGame game, ChessMove move) {
+        ChessGame next = game.copy();
+        try {
+            next.makeMove(move);
+        } catch (InvalidMoveException e) {
+            throw new IllegalStateException("validMoves returned a move makeMove rejected: " + notation(move), e);
+        }
+        return next;
+    }
+
+    private static String notation(ChessMove move) {
+        String promotion = move.getPromotionPiece() == null
+                ? ""
+                : new ChessPiece(ChessGame.TeamColor.BLACK, move.getPromotionPiece()).toString().toLowerCase();
+        return move.getStartPosition().toString() + move.getEndPosition() + promotion;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 2) {
+            long total = 0;
+            for (var entry : divide(load(args[0]), Integer.parseInt(args[1])).entrySet()) {
+                System.out.printf("%s: %d%n", entry.getKey(), entry.getValue());
+                total += entry.getValue();
+            }
+            System.out.printf("%nNodes searched: %d%n", total);
+            return;
+        }
+
+        int maxDepth = args.length == 1 ? Integer.parseInt(args[0]) : 4;
+        for (String name : POSITIONS.keySet()) {
+            System.out.println(name);
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                long start = System.nanoTime();
+                long nodes = perft(load(name), depth);
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("  depth %d: %12d nodes %8.1f ms %12.0f nodes/s%n",
+                        depth, nodes, elapsed / 1e6, nodes / (elapsed / 1e9));
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Reference perft counts from the Chess Programming Wiki
+ */
+public class PerftTests {
+    private static void assertPerft(String position, long... expected) {
+        for (int depth = 1; depth <= expected.length; depth++) {
+            Assertions.assertEquals(expected[depth - 1], Perft.perft(Perft.load(position), depth),
+                    "Wrong perft count for %s at depth %d".formatted(position, depth));
+        }
+    }
+
+    @Test
+    @DisplayName("Starting Position")
+    public void startingPosition() {
+        assertPerft("start", 20, 400, 8902, 197281);
+    }
+
+    @Test
+    @DisplayName("Kiwipete")
+    public void kiwipete() {
+        assertPerft("kiwipete", 48, 2039, 97862);
+    }
+
+    @Test
+    @DisplayName("Rook and Pawn Endgame")
+    public void endgame() {
+        assertPerft("endgame", 14, 191, 2812, 43238);
+    }
+
+    @Test
+    @DisplayName("Middlegame")
+    public void middlegame() {
+        assertPerft("middlegame", 46, 2079, 89890);
+    }
+
+    @Test
+    @DisplayName("Castling Rights from FEN")
+    public void castling() {
+        assertPerft("castling", 6, 264, 9467);
+    }
+
+    @Test
+    @DisplayName("Promotions")
+    public void promotion() {
+        assertPerft("promotion", 44, 1486, 62379);
+    }
+
+    @Test
+    @DisplayName("Divide Sums to Perft")
+    public void divide() {
+        var counts = Perft.divide(Perft.load("start"), 3);
+        Assertions.assertEquals(20, counts.size());
+        Assertions.assertEquals(8902, counts.values().stream().mapToLong(Long::longValue).sum());
+        Assertions.assertEquals(600, counts.get("e2e4"));
+    }
+}
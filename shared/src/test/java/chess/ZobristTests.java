@@ -0,0 +1,74 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ZobristTests {
+    @Test
+    @DisplayName("Incremental Key Matches Rebuilt Board")
+    public void incrementalMatchesRebuilt() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        game.makeMove(new ChessMove(ChessPosition.of(7, 4), ChessPosition.of(5, 4), null));
+        game.makeMove(new ChessMove(ChessPosition.of(4, 5), ChessPosition.of(5, 4), null));
+
+        ChessBoard rebuilt = new ChessBoard();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = ChessPosition.of(row, col);
+                rebuilt.addPiece(position, game.getBoard().getPiece(position));
+            }
+        }
+        Assertions.assertEquals(rebuilt.getZobristKey(), game.getBoard().getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Transpositions Share a Key")
+    public void transpositions() throws InvalidMoveException {
+        ChessGame first = new ChessGame();
+        first.makeMove(new ChessMove(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null));
+        first.makeMove(new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null));
+        first.makeMove(new ChessMove(ChessPosition.of(1, 2), ChessPosition.of(3, 3), null));
+
+        ChessGame second = new ChessGame();
+        second.makeMove(new ChessMove(ChessPosition.of(1, 2), ChessPosition.of(3, 3), null));
+        second.makeMove(new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null));
+        second.makeMove(new ChessMove(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null));
+
+        Assertions.assertEquals(first.getZobristKey(), second.getZobristKey());
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    @DisplayName("Side to Move Changes the Key")
+    public void sideToMove() {
+        ChessGame game = new ChessGame();
+        long white = game.getZobristKey();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        Assertions.assertNotEquals(white, game.getZobristKey());
+        Assertions.assertEquals(Zobrist.BLACK_TO_MOVE, white ^ game.getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Unmake Restores the Key")
+    public void unmakeRestores() {
+        ChessBoard board = Perft.load("kiwipete").getBoard();
+        long key = board.getZobristKey();
+        ChessBoard.Undo undo = new ChessBoard.Undo();
+        MoveList moves = new MoveList();
+        long own = board.occupancy(ChessGame.TeamColor.WHITE);
+        while (own != 0) {
+            int square = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            board.pieceAt(square).addMoves(board, square, 0b1111, -1, moves);
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i), undo);
+            Assertions.assertNotEquals(key, board.getZobristKey());
+            board.unmakeMove(undo);
+            Assertions.assertEquals(key, board.getZobristKey());
+        }
+    }
+}
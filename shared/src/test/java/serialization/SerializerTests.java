@@ -0,0 +1,124 @@
+package serialization;
+
+import chess.*;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import websocket.commands.MakeMoveCommand;
+
+public class SerializerTests {
+    @Test
+    @DisplayName("Compact Chess Types")
+    public void compactForms() {
+        Assertions.assertEquals("\"e2\"", Serializer.GSON.toJson(ChessPosition.of(2, 5)));
+        Assertions.assertEquals("\"q\"", Serializer.GSON.toJson(ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN)));
+        Assertions.assertEquals("\"e2e4\"", Serializer.GSON.toJson(
+                new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null)));
+        Assertions.assertEquals("\"a7a8n\"", Serializer.GSON.toJson(
+                new ChessMove(ChessPosition.of(7, 1), ChessPosition.of(8, 1), ChessPiece.PieceType.KNIGHT)));
+        Assertions.assertEquals("\"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR\"", Serializer.GSON.toJson(new ChessGame().getBoard()));
+    }
+
+    @Test
+    @DisplayName("Game Round Trip")
+    public void gameRoundTrip() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        String json = Serializer.GSON.toJson(game);
+        Assertions.assertTrue(json.length() < 200, json);
+        ChessGame parsed = Serializer.GSON.fromJson(json, ChessGame.class);
+        Assertions.assertEquals(game, parsed);
+        Assertions.assertEquals(game.toFen(), parsed.toFen());
+        // Every Gson instance agrees on the format, not just the shared one
+        Assertions.assertEquals(game, new Gson().fromJson(json, ChessGame.class));
+    }
+
+    @Test
+    @DisplayName("Legacy Game Castling Rights")
+    public void legacyCastlingRights() {
+        // Saved before castling rights were stored, so the field is missing
+        String json = "{\"board\":\"4k3/8/8/8/8/8/8/R3K2R\",\"turn\":\"WHITE\"}";
+        ChessGame parsed = Serializer.GSON.fromJson(json, ChessGame.class);
+        Assertions.assertEquals("4k3/8/8/8/8/8/8/R3K2R w KQ - 0 1", parsed.toFen());
+        Assertions.assertEquals(ChessGame.fromFen(parsed.toFen()).getZobristKey(), parsed.getZobristKey());
+    }
+
+    @Test
+    @DisplayName("Repetition History Round Trip")
+    public void repetitionRoundTrip() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < 2; i++) {
+            game.makeMove(new ChessMove(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null));
+            game.makeMove(new ChessMove(ChessPosition.of(8, 7), ChessPosition.of(6, 6), null));
+            game.makeMove(new ChessMove(ChessPosition.of(3, 6), ChessPosition.of(1, 7), null));
+            game.makeMove(new ChessMove(ChessPosition.of(6, 6), ChessPosition.of(8, 7), null));
+        }
+        Assertions.assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, game.getGameStatus());
+        ChessGame parsed = Serializer.GSON.fromJson(Serializer.GSON.toJson(game), ChessGame.class);
+        Assertions.assertEquals(ChessGame.GameStatus.THREEFOLD_REPETITION, parsed.getGameStatus());
+        Assertions.assertEquals(game.getHalfmoveClock(), parsed.getHalfmoveClock());
+    }
+
+    @Test
+    @DisplayName("Object Form Moves")
+    public void objectFormMoves() {
+        String json = """
+                {"commandType":"MAKE_MOVE","authToken":"token","gameID":1,"move":
+                {"startPosition":{"row":7,"col":1},"endPosition":{"row":8,"col":1},"promotionPiece":"QUEEN"}}
+                """;
+        MakeMoveCommand command = Serializer.GSON.fromJson(json, MakeMoveCommand.class);
+        Assertions.assertEquals(new ChessMove(ChessPosition.of(7, 1), ChessPosition.of(8, 1), ChessPiece.PieceType.QUEEN),
+                command.getMove());
+    }
+
+    @Test
+    @DisplayName("Legacy Boards")
+    public void legacyBoards() {
+        ChessBoard expected = new ChessBoard();
+        expected.addPiece(ChessPosition.of(1, 5), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        expected.addPiece(ChessPosition.of(8, 4), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+
+        String bitboards = """
+                {"pieces":[16,0,0,0,0,0,0,576460752303423488,0,0,0,0],"colors":[16,576460752303423488],"occupied":576460752303423504}
+                """;
+        Assertions.assertEquals(expected, Serializer.GSON.fromJson(bitboards, ChessBoard.class));
+
+        StringBuilder positions = new StringBuilder("{\"position\":[");
+        for (int row = 1; row <= 8; row++) {
+            positions.append(row == 1 ? "[" : ",[");
+            for (int col = 1; col <= 8; col++) {
+                if (col > 1) {
+                    positions.append(',');
+                }
+                if (row == 1 && col == 5) {
+                    positions.append("{\"color\":\"WHITE\",\"type\":\"KING\"}");
+                } else if (row == 8 && col == 4) {
+                    positions.append("{\"color\":\"BLACK\",\"type\":\"QUEEN\"}");
+                } else {
+                    positions.append("null");
+                }
+            }
+            positions.append(']');
+        }
+        positions.append("]}");
+        Assertions.assertEquals(expected, Serializer.GSON.fromJson(positions.toString(), ChessBoard.class));
+    }
+
+    @Test
+    @DisplayName("Malformed Values")
+    public void malformed() {
+        Assertions.assertThrows(JsonSyntaxException.class, () -> Serializer.GSON.fromJson("\"e9\"", ChessPosition.class));
+        Assertions.assertThrows(JsonSyntaxException.class, () -> Serializer.GSON.fromJson("\"e2e\"", ChessMove.class));
+        Assertions.assertThrows(JsonSyntaxException.class, () -> Serializer.GSON.fromJson("\"x\"", ChessPiece.class));
+        Assertions.assertThrows(JsonSyntaxException.class, () -> Serializer.GSON.fromJson("\"9/8\"", ChessBoard.class));
+        Assertions.assertThrows(JsonSyntaxException.class,
+                () -> Serializer.GSON.fromJson("{\"row\":9,\"col\":1}", ChessPosition.class));
+        Assertions.assertThrows(JsonSyntaxException.class, () -> Serializer.GSON.fromJson(
+                "{\"startPosition\":\"a7\",\"endPosition\":\"a8\",\"promotionPiece\":\"KINGDOM\"}", ChessMove.class));
+        JsonSyntaxException e = Assertions.assertThrows(JsonSyntaxException.class,
+                () -> Serializer.GSON.fromJson("\"e2e9\"", ChessMove.class));
+        Assertions.assertNotNull(e.getCause());
+    }
+}